@@ -0,0 +1,280 @@
+package bench;
+
+import graph.DirectedGraph;
+import graph.LabeledGraph;
+import graph.WeightedDirectedGraph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.lang.Math.sqrt;
+
+/** Synthetic graph families for benchmarking the graph package.  Each
+ *  generator produces an edge list over vertices 1 .. N together with a
+ *  position for each vertex, so that the same workload can be loaded into
+ *  a plain graph (to time construction) or a labeled one (to time
+ *  searches that need weights and A* estimates).
+ *  @author Yuhan Xie
+ */
+final class Generators {
+
+    /** The families of graphs we can generate. */
+    enum Shape {
+        /** Uniformly random directed edges (Erdos-Renyi G(n, m)). */
+        RANDOM,
+        /** A square grid whose neighbors are joined in both directions. */
+        GRID,
+        /** Preferential attachment (Barabasi-Albert), giving a power-law
+         *  degree distribution. */
+        POWERLAW,
+        /** Jittered points joined to nearby points in both directions, with
+         *  some links missing, roughly resembling a road network. */
+        ROAD;
+    }
+
+    /** A generated graph: vertex positions plus a list of edges. */
+    static final class Workload {
+        /** A workload of N vertices with room for edges. */
+        Workload(int n) {
+            _n = n;
+            x = new double[n + 1];
+            y = new double[n + 1];
+            from = new int[4 * n];
+            to = new int[4 * n];
+        }
+
+        /** Returns the number of vertices. */
+        int vertexCount() {
+            return _n;
+        }
+
+        /** Returns the number of edges. */
+        int edgeCount() {
+            return _m;
+        }
+
+        /** Add edge (U, V), unless it is a self edge. */
+        void edge(int u, int v) {
+            if (u == v) {
+                return;
+            }
+            if (_m == from.length) {
+                from = Arrays.copyOf(from, 2 * _m);
+                to = Arrays.copyOf(to, 2 * _m);
+            }
+            from[_m] = u;
+            to[_m] = v;
+            _m += 1;
+        }
+
+        /** Remove duplicate edges. */
+        void dedup() {
+            long[] keys = new long[_m];
+            for (int i = 0; i < _m; i += 1) {
+                keys[i] = ((long) from[i] << 32) | to[i];
+            }
+            Arrays.sort(keys);
+            int k;
+            k = 0;
+            for (int i = 0; i < keys.length; i += 1) {
+                if (i == 0 || keys[i] != keys[i - 1]) {
+                    from[k] = (int) (keys[i] >>> 32);
+                    to[k] = (int) keys[i];
+                    k += 1;
+                }
+            }
+            _m = k;
+        }
+
+        /** Returns the Euclidean distance between U and V. */
+        double dist(int u, int v) {
+            double dx = x[u] - x[v], dy = y[u] - y[v];
+            return sqrt(dx * dx + dy * dy);
+        }
+
+        /** Returns a new DirectedGraph containing my vertices and edges. */
+        DirectedGraph build() {
+            DirectedGraph g = new DirectedGraph();
+            for (int v = 1; v <= _n; v += 1) {
+                g.add();
+            }
+            for (int i = 0; i < _m; i += 1) {
+                g.add(from[i], to[i]);
+            }
+            return g;
+        }
+
+        /** Returns a new graph containing my vertices, labeled with their
+         *  positions, and my edges, weighted by their lengths. */
+        LabeledGraph<double[], Double> buildWeighted() {
+            WeightedDirectedGraph w = new WeightedDirectedGraph();
+            LabeledGraph<double[], Double> g = new LabeledGraph<>(w);
+            for (int v = 1; v <= _n; v += 1) {
+                g.add(new double[] { x[v], y[v] });
+            }
+            for (int i = 0; i < _m; i += 1) {
+                w.add(from[i], to[i], dist(from[i], to[i]));
+            }
+            return g;
+        }
+
+        /** Returns a new graph containing my vertices, labeled with their
+         *  positions, and my edges, labeled with their lengths. */
+        LabeledGraph<double[], Double> buildLabeled() {
+            LabeledGraph<double[], Double> g =
+                new LabeledGraph<>(new DirectedGraph());
+            for (int v = 1; v <= _n; v += 1) {
+                g.add(new double[] { x[v], y[v] });
+            }
+            for (int i = 0; i < _m; i += 1) {
+                g.add(from[i], to[i], dist(from[i], to[i]));
+            }
+            return g;
+        }
+
+        /** Vertex positions. */
+        final double[] x, y;
+        /** Edge endpoints. */
+        int[] from, to;
+        /** Number of vertices. */
+        private final int _n;
+        /** Number of edges. */
+        private int _m;
+    }
+
+    /** Returns a graph of the given SHAPE with about N vertices and
+     *  average out-degree about DEGREE, generated from SEED. */
+    static Workload generate(Shape shape, int n, int degree, long seed) {
+        Random rand = new Random(seed);
+        Workload w;
+        switch (shape) {
+        case RANDOM:
+            w = random(n, degree, rand);
+            break;
+        case GRID:
+            w = grid(n, rand);
+            break;
+        case POWERLAW:
+            w = powerLaw(n, degree, rand);
+            break;
+        case ROAD:
+            w = road(n, rand);
+            break;
+        default:
+            throw new IllegalArgumentException("unknown shape");
+        }
+        w.dedup();
+        return w;
+    }
+
+    /** Returns a uniformly random graph of N vertices and about N * DEGREE
+     *  edges, using RAND. */
+    private static Workload random(int n, int degree, Random rand) {
+        Workload w = new Workload(n);
+        place(w, rand);
+        for (long i = 0; i < (long) n * degree; i += 1) {
+            w.edge(1 + rand.nextInt(n), 1 + rand.nextInt(n));
+        }
+        return w;
+    }
+
+    /** Returns a square grid of about N vertices, with edges in both
+     *  directions between horizontal and vertical neighbors.  RAND is
+     *  unused, but accepted for uniformity. */
+    private static Workload grid(int n, Random rand) {
+        int side = Math.max(1, (int) sqrt(n));
+        Workload w = new Workload(side * side);
+        for (int r = 0; r < side; r += 1) {
+            for (int c = 0; c < side; c += 1) {
+                int v = r * side + c + 1;
+                w.x[v] = c;
+                w.y[v] = r;
+                if (c + 1 < side) {
+                    w.edge(v, v + 1);
+                    w.edge(v + 1, v);
+                }
+                if (r + 1 < side) {
+                    w.edge(v, v + side);
+                    w.edge(v + side, v);
+                }
+            }
+        }
+        return w;
+    }
+
+    /** Returns a Barabasi-Albert graph of N vertices in which each new
+     *  vertex links to DEGREE earlier ones chosen with probability
+     *  proportional to their degree, using RAND. */
+    private static Workload powerLaw(int n, int degree, Random rand) {
+        Workload w = new Workload(n);
+        place(w, rand);
+        int[] ends = new int[2 * n * Math.max(degree, 1) + 2];
+        int k;
+        k = 0;
+        ends[k++] = 1;
+        for (int v = 2; v <= n; v += 1) {
+            for (int j = 0; j < degree; j += 1) {
+                int u = ends[rand.nextInt(k)];
+                w.edge(v, u);
+                w.edge(u, v);
+                if (k + 2 <= ends.length) {
+                    ends[k++] = u;
+                    ends[k++] = v;
+                }
+            }
+        }
+        return w;
+    }
+
+    /** Returns a road-like graph of about N vertices: grid points moved a
+     *  random amount, joined to their grid neighbors and occasionally a
+     *  diagonal neighbor in both directions, with about a tenth of the
+     *  links missing, using RAND. */
+    private static Workload road(int n, Random rand) {
+        int side = Math.max(1, (int) sqrt(n));
+        Workload w = new Workload(side * side);
+        for (int r = 0; r < side; r += 1) {
+            for (int c = 0; c < side; c += 1) {
+                int v = r * side + c + 1;
+                w.x[v] = c + JITTER * (rand.nextDouble() - 0.5);
+                w.y[v] = r + JITTER * (rand.nextDouble() - 0.5);
+            }
+        }
+        for (int r = 0; r < side; r += 1) {
+            for (int c = 0; c < side; c += 1) {
+                int v = r * side + c + 1;
+                if (c + 1 < side && rand.nextDouble() > MISSING) {
+                    w.edge(v, v + 1);
+                    w.edge(v + 1, v);
+                }
+                if (r + 1 < side && rand.nextDouble() > MISSING) {
+                    w.edge(v, v + side);
+                    w.edge(v + side, v);
+                }
+                if (c + 1 < side && r + 1 < side
+                    && rand.nextDouble() < DIAGONAL) {
+                    w.edge(v, v + side + 1);
+                    w.edge(v + side + 1, v);
+                }
+            }
+        }
+        return w;
+    }
+
+    /** Give the vertices of W random positions in the unit square scaled
+     *  to the square root of their number, using RAND. */
+    private static void place(Workload w, Random rand) {
+        double scale = sqrt(w.vertexCount());
+        for (int v = 1; v <= w.vertexCount(); v += 1) {
+            w.x[v] = scale * rand.nextDouble();
+            w.y[v] = scale * rand.nextDouble();
+        }
+    }
+
+    /** Maximum displacement of road-like vertices from the grid. */
+    private static final double JITTER = 0.6;
+    /** Fraction of road-like links omitted. */
+    private static final double MISSING = 0.1;
+    /** Fraction of road-like cells with a diagonal link. */
+    private static final double DIAGONAL = 0.15;
+}
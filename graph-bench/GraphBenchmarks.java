@@ -0,0 +1,222 @@
+package bench;
+
+import graph.BreadthFirstTraversal;
+import graph.DepthFirstTraversal;
+import graph.DirectedGraph;
+import graph.Graph;
+import graph.LabeledGraph;
+import graph.SimpleShortestPaths;
+import graph.WeightedShortestPaths;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.Generators.Shape;
+import bench.Generators.Workload;
+
+/** JMH benchmarks for the graph package.  Each benchmark is run over every
+ *  combination of graph shape and size, and reports both throughput and
+ *  sampled latency (from which JMH derives percentiles).  Run with
+ *  "-prof gc" (as the Makefile's bench target does) to get allocation
+ *  rates as well.
+ *  @author Yuhan Xie
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphBenchmarks {
+
+    /** The family of graphs (the name of a Generators.Shape). */
+    @Param({ "RANDOM", "GRID", "POWERLAW", "ROAD" })
+    public String shape;
+
+    /** Approximate number of vertices. */
+    @Param({ "1000", "4000" })
+    public int size;
+
+    /** Approximate average out-degree, where the shape allows a
+     *  choice. */
+    @Param({ "4" })
+    public int degree;
+
+    /** Create the workload and the prebuilt graphs. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        _work = Generators.generate(Shape.valueOf(shape), size, degree,
+                                    SEED);
+        _graph = _work.build();
+        _labeled = _work.buildLabeled();
+        _weighted = _work.buildWeighted();
+        Random rand = new Random(SEED + 1);
+        int n = _work.vertexCount();
+        _probes = new int[2 * PROBES];
+        for (int i = 0; i < PROBES; i += 1) {
+            int e = rand.nextInt(Math.max(_work.edgeCount(), 1));
+            if (i % 2 == 0 && _work.edgeCount() > 0) {
+                _probes[2 * i] = _work.from[e];
+                _probes[2 * i + 1] = _work.to[e];
+            } else {
+                _probes[2 * i] = 1 + rand.nextInt(n);
+                _probes[2 * i + 1] = 1 + rand.nextInt(n);
+            }
+        }
+        _source = 1;
+        _dest = n;
+    }
+
+    /** Construct the graph from its edge list. */
+    @Benchmark
+    public Graph build() {
+        return _work.build();
+    }
+
+    /** Remove and re-add a batch of existing edges. */
+    @Benchmark
+    public int churn() {
+        DirectedGraph g = _graph;
+        int m = Math.min(CHURN, _work.edgeCount());
+        for (int i = 0; i < m; i += 1) {
+            g.remove(_work.from[i], _work.to[i]);
+        }
+        for (int i = 0; i < m; i += 1) {
+            g.add(_work.from[i], _work.to[i]);
+        }
+        return g.edgeSize();
+    }
+
+    /** Test a batch of vertex pairs, half of them edges, for
+     *  adjacency. */
+    @Benchmark
+    public int edgeLookup() {
+        int hits;
+        hits = 0;
+        for (int i = 0; i < _probes.length; i += 2) {
+            if (_graph.contains(_probes[i], _probes[i + 1])) {
+                hits += 1;
+            }
+        }
+        return hits;
+    }
+
+    /** Breadth-first traversal from the first vertex. */
+    @Benchmark
+    public void bfs(Blackhole sink) {
+        new BreadthFirstTraversal(_graph) {
+            @Override
+            protected boolean visit(int v) {
+                sink.consume(v);
+                return true;
+            }
+        }.traverse(_source);
+    }
+
+    /** Depth-first traversal with postvisits from the first vertex. */
+    @Benchmark
+    public void dfs(Blackhole sink) {
+        new DepthFirstTraversal(_graph) {
+            @Override
+            protected boolean postVisit(int v) {
+                sink.consume(v);
+                return true;
+            }
+        }.traverse(_source);
+    }
+
+    /** Dijkstra's algorithm from the first vertex to all others. */
+    @Benchmark
+    public double dijkstra() {
+        Paths paths = new Paths(_labeled, _source, 0, false);
+        paths.setPaths();
+        return paths.getWeight(_dest);
+    }
+
+    /** Dijkstra's algorithm from the first vertex to all others, reading
+     *  weights stored in the graph. */
+    @Benchmark
+    public double dijkstraWeighted() {
+        WeightedShortestPaths paths =
+            new WeightedShortestPaths(_weighted, _source);
+        paths.setPaths();
+        return paths.getWeight(_dest);
+    }
+
+    /** A* search from the first vertex to the last. */
+    @Benchmark
+    public double astar() {
+        Paths paths = new Paths(_labeled, _source, _dest, true);
+        paths.setPaths();
+        return paths.getWeight(_dest);
+    }
+
+    /** Shortest paths over a graph labeled with positions and lengths. */
+    private static class Paths extends SimpleShortestPaths {
+        /** Paths in G from SOURCE to DEST (0 for all), using straight-line
+         *  distance as an estimate iff ESTIMATE. */
+        Paths(LabeledGraph<double[], Double> G, int source, int dest,
+              boolean estimate) {
+            super(G, source, dest);
+            _map = G;
+            _target = dest == 0 ? null : G.getLabel(dest);
+            _estimate = estimate;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _map.getLabel(u, v);
+        }
+
+        @Override
+        protected double estimatedDistance(int v) {
+            if (!_estimate) {
+                return 0.0;
+            }
+            double[] p = _map.getLabel(v);
+            double dx = p[0] - _target[0], dy = p[1] - _target[1];
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+
+        /** The graph searched. */
+        private final LabeledGraph<double[], Double> _map;
+        /** Position of the destination. */
+        private final double[] _target;
+        /** True iff using A*. */
+        private final boolean _estimate;
+    }
+
+    /** Seed for all random choices, so runs are comparable. */
+    private static final long SEED = 61;
+    /** Number of vertex pairs probed by edgeLookup. */
+    private static final int PROBES = 1000;
+    /** Number of edges removed and replaced by churn. */
+    private static final int CHURN = 200;
+
+    /** The current workload. */
+    private Workload _work;
+    /** The workload, built as an unlabeled graph. */
+    private DirectedGraph _graph;
+    /** The workload, built with positions and lengths. */
+    private LabeledGraph<double[], Double> _labeled;
+    /** The workload, built with positions and stored edge weights. */
+    private LabeledGraph<double[], Double> _weighted;
+    /** Pairs of vertices for edgeLookup. */
+    private int[] _probes;
+    /** Endpoints of searches. */
+    private int _source, _dest;
+}
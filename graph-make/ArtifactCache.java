@@ -0,0 +1,206 @@
+package make;
+
+import java.io.IOException;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static make.Main.error;
+
+/** A content-addressed cache of built targets, kept in a directory and
+ *  shared by all runs of make that name it.  Each entry is a copy of a
+ *  target file, named by a key that fingerprints everything the build of
+ *  that target depended on: its name, its commands, and the contents of
+ *  its dependencies.  A hit is restored by hard-linking the entry to the
+ *  target, or by copying it where links are not possible.
+ *
+ *  Entries are added by writing a temporary file in the cache and moving
+ *  it into place, so concurrent runs never see partial entries.  Using an
+ *  entry sets its modification time, and when the entries' total size
+ *  exceeds the cache's limit, the least recently used are removed until
+ *  it is no more than 90% of the limit.  Safe for use by several threads.
+ *  @author Yuhan Xie
+ */
+class ArtifactCache {
+
+    /** The cache in directory DIR, created if need be, holding at most
+     *  LIMIT bytes. */
+    ArtifactCache(String dir, long limit) {
+        if (limit <= 0) {
+            error("cache size must be positive");
+        }
+        _dir = Paths.get(dir);
+        _limit = limit;
+        try {
+            Files.createDirectories(_dir);
+            for (Path entry : entries()) {
+                _size += Files.size(entry);
+            }
+        } catch (IOException excp) {
+            error("could not use cache directory %s", dir);
+        }
+    }
+
+    /** Replace the file TARGET with the cache entry for KEY, returning
+     *  true, if there is one.  Otherwise, return false. */
+    synchronized boolean restore(long key, String target) {
+        Path entry = entry(key);
+        if (!Files.isRegularFile(entry)) {
+            return false;
+        }
+        Path dest = Paths.get(target);
+        try {
+            Files.setLastModifiedTime(entry,
+                FileTime.fromMillis(System.currentTimeMillis()));
+            Files.deleteIfExists(dest);
+            try {
+                Files.createLink(dest, entry);
+            } catch (IOException | UnsupportedOperationException excp) {
+                Files.copy(entry, dest, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Add the file TARGET, if it exists, to the cache as the entry for
+     *  KEY. */
+    synchronized void store(long key, String target) {
+        Path source = Paths.get(target);
+        Path entry = entry(key);
+        if (!Files.isRegularFile(source) || Files.exists(entry)) {
+            return;
+        }
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(_dir, ".new", TEMP_SUFFIX);
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(temp);
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+                _size += size;
+            } catch (FileAlreadyExistsException excp) {
+                Files.deleteIfExists(temp);
+            }
+            temp = null;
+            if (_size > _limit) {
+                evict();
+            }
+        } catch (IOException excp) {
+            error("could not add %s to cache", target);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException excp) {
+                    /* Ignore */
+                }
+            }
+        }
+    }
+
+    /** If TARGET is a file that shares its contents with a cache entry
+     *  through a hard link, remove it, so that rebuilding it cannot
+     *  overwrite the entry. */
+    static void unlink(String target) {
+        Path path = Paths.get(target);
+        try {
+            Object links = Files.getAttribute(path, "unix:nlink");
+            if (links instanceof Integer && (Integer) links > 1) {
+                Files.delete(path);
+            }
+        } catch (IOException | UnsupportedOperationException
+                 | IllegalArgumentException excp) {
+            /* Not a file, or links unsupported: nothing to do. */
+        }
+    }
+
+    /** Returns the total size of the entries, in bytes. */
+    synchronized long size() {
+        return _size;
+    }
+
+    /** Remove the least recently used entries until the total size is no
+     *  more than 90% of the limit. */
+    private void evict() throws IOException {
+        ArrayList<Used> entries = new ArrayList<>();
+        long total;
+        total = 0;
+        for (Path entry : entries()) {
+            long size = Files.size(entry);
+            entries.add(new Used(entry, size,
+                                 Files.getLastModifiedTime(entry)
+                                 .toMillis()));
+            total += size;
+        }
+        Collections.sort(entries);
+        long target = _limit / 10 * 9;
+        for (Used e : entries) {
+            if (total <= target) {
+                break;
+            }
+            if (Files.deleteIfExists(e._path)) {
+                total -= e._size;
+            }
+        }
+        _size = total;
+    }
+
+    /** Returns the paths of all entries. */
+    private ArrayList<Path> entries() throws IOException {
+        ArrayList<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> files =
+             Files.newDirectoryStream(_dir, "*" + ENTRY_SUFFIX)) {
+            for (Path p : files) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the path of the entry for KEY. */
+    private Path entry(long key) {
+        return _dir.resolve(String.format("%016x%s", key, ENTRY_SUFFIX));
+    }
+
+    /** An entry and the time it was last used. */
+    private static class Used implements Comparable<Used> {
+        /** The entry at PATH, of SIZE bytes, last used at TIME. */
+        Used(Path path, long size, long time) {
+            _path = path;
+            _size = size;
+            _time = time;
+        }
+
+        @Override
+        public int compareTo(Used other) {
+            return Long.compare(_time, other._time);
+        }
+
+        /** The entry. */
+        private final Path _path;
+        /** Its size and time of last use. */
+        private final long _size, _time;
+    }
+
+    /** Suffix of entry names. */
+    private static final String ENTRY_SUFFIX = ".obj";
+    /** Suffix of entries being added. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The cache directory. */
+    private final Path _dir;
+    /** Maximum total size of the entries. */
+    private final long _limit;
+    /** Current total size of the entries. */
+    private long _size;
+}
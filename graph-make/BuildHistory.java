@@ -0,0 +1,94 @@
+package make;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+import static make.Main.error;
+
+/** A record, kept in a file between runs of make, of how long each
+ *  target's commands took to run.  Each line of the file holds a target
+ *  and a time in seconds.  The time recorded for a target is a running
+ *  average in which each run counts half as much as the one after it, so
+ *  that one unusual run does not dominate.  Safe for use by several
+ *  threads.
+ *  @author Yuhan Xie
+ */
+class BuildHistory {
+
+    /** The history kept in the file named FILENAME, which need not exist
+     *  yet. */
+    BuildHistory(String fileName) {
+        _fileName = fileName;
+        if (!new File(fileName).exists()) {
+            return;
+        }
+        String target;
+        target = "<start>";
+        try (Scanner inp = new Scanner(new FileReader(fileName))) {
+            while (inp.hasNext()) {
+                target = inp.next();
+                set(target, inp.nextDouble());
+            }
+        } catch (NoSuchElementException excp) {
+            error("bad build history entry for %s", target);
+        } catch (FileNotFoundException excp) {
+            error("could not read build history: %s", fileName);
+        }
+    }
+
+    /** Returns the expected time in seconds to run the commands for
+     *  TARGET.  For targets with no history, this is the average over
+     *  those with one, or 1 if there are none. */
+    synchronized double estimate(String target) {
+        Double seconds = _seconds.get(target);
+        if (seconds != null) {
+            return seconds;
+        } else if (_seconds.isEmpty()) {
+            return 1.0;
+        }
+        return _total / _seconds.size();
+    }
+
+    /** Record that TARGET's commands took SECONDS to run. */
+    synchronized void record(String target, double seconds) {
+        Double old = _seconds.get(target);
+        set(target, old == null ? seconds : (old + seconds) / 2);
+    }
+
+    /** Set the time recorded for TARGET to SECONDS. */
+    private void set(String target, double seconds) {
+        Double old = _seconds.put(target, seconds);
+        _total += seconds - (old == null ? 0.0 : old);
+    }
+
+    /** Write the history back to its file. */
+    synchronized void save() {
+        try (PrintWriter out = new PrintWriter(_fileName)) {
+            for (Map.Entry<String, Double> e
+                     : new TreeMap<>(_seconds).entrySet()) {
+                out.printf("%s %.6f%n", e.getKey(), e.getValue());
+            }
+            if (out.checkError()) {
+                throw new IOException();
+            }
+        } catch (IOException excp) {
+            error("could not write build history: %s", _fileName);
+        }
+    }
+
+    /** Name of the file holding the history. */
+    private final String _fileName;
+    /** Average time in seconds taken by each target's commands. */
+    private final HashMap<String, Double> _seconds = new HashMap<>();
+    /** Sum of the times in _seconds. */
+    private double _total;
+}
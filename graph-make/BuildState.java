@@ -0,0 +1,386 @@
+package make;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static make.Main.error;
+
+/** The state make keeps between runs: for each target it has built, the
+ *  time at which it was last built and fingerprints of the commands, the
+ *  set of dependencies, and (when building by content) the contents of the
+ *  inputs and output of that build.  It also caches the content hashes of
+ *  files, each with the size and modification time the file had when it
+ *  was hashed.
+ *
+ *  The state is kept in a log file, to which a record is appended as each
+ *  rule finishes.  Each record is written in a single write and carries a
+ *  CRC-32 checksum, so a record torn by a crash is recognized and dropped
+ *  (with everything after it) when the log is next read.  A later record
+ *  for a target replaces an earlier one.  When the log has grown to
+ *  several times the number of targets it describes, or holds a damaged
+ *  record, it is compacted by writing the current entries to a temporary
+ *  file and moving that over the log in one atomic step.  Safe for use by
+ *  several threads.
+ *  @author Yuhan Xie
+ */
+class BuildState {
+
+    /** One target's state. */
+    static class Entry {
+        /** The state of a target built at TIME with commands whose
+         *  fingerprint is COMMANDS, and dependencies whose fingerprint is
+         *  DEPENDENCIES.  INPUTS and OUTPUT fingerprint the contents of
+         *  the dependencies and of the target after the build, or are 0 if
+         *  not building by content. */
+        Entry(int time, long commands, long dependencies, long inputs,
+              long output) {
+            _time = time;
+            _commands = commands;
+            _dependencies = dependencies;
+            _inputs = inputs;
+            _output = output;
+        }
+
+        /** Returns the time at which my target was last built. */
+        int time() {
+            return _time;
+        }
+
+        /** Returns the fingerprint of the commands that built it. */
+        long commands() {
+            return _commands;
+        }
+
+        /** Returns the fingerprint of its set of dependencies. */
+        long dependencies() {
+            return _dependencies;
+        }
+
+        /** Returns the fingerprint of its dependencies' contents. */
+        long inputs() {
+            return _inputs;
+        }
+
+        /** Returns the fingerprint of its contents after the build. */
+        long output() {
+            return _output;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Entry e = (Entry) obj;
+            return _time == e._time && _commands == e._commands
+                && _dependencies == e._dependencies && _inputs == e._inputs
+                && _output == e._output;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(_commands ^ _dependencies ^ _inputs
+                                 ^ _output) + _time;
+        }
+
+        /** Time of the last build. */
+        private final int _time;
+        /** Fingerprints of the commands, dependencies, and contents. */
+        private final long _commands, _dependencies, _inputs, _output;
+    }
+
+    /** The content hash of a file of a given size and modification
+     *  time. */
+    static class Stamp {
+        /** The stamp of a file of SIZE bytes modified at MODIFIED whose
+         *  contents hash to HASH. */
+        Stamp(long size, long modified, long hash) {
+            _size = size;
+            _modified = modified;
+            _hash = hash;
+        }
+
+        /** Returns true iff I describe a file of SIZE bytes modified at
+         *  MODIFIED. */
+        boolean matches(long size, long modified) {
+            return _size == size && _modified == modified;
+        }
+
+        /** Returns the content hash. */
+        long hash() {
+            return _hash;
+        }
+
+        /** Size, modification time, and content hash of the file. */
+        private final long _size, _modified, _hash;
+    }
+
+    /** The state kept in the file named FILENAME, which is created if it
+     *  does not exist. */
+    BuildState(String fileName) {
+        _path = Paths.get(fileName);
+        boolean damaged;
+        damaged = false;
+        if (Files.exists(_path)) {
+            damaged = !read();
+        }
+        try {
+            if (damaged || !Files.exists(_path)) {
+                compact();
+            } else {
+                open();
+            }
+        } catch (IOException excp) {
+            error("could not write build state: %s", fileName);
+        }
+    }
+
+    /** Returns the recorded state of TARGET, or null if there is none. */
+    synchronized Entry get(String target) {
+        return _entries.get(target);
+    }
+
+    /** Returns the latest time recorded for any target, or 0 if none. */
+    synchronized int latestTime() {
+        int latest;
+        latest = 0;
+        for (Entry e : _entries.values()) {
+            latest = Math.max(latest, e.time());
+        }
+        return latest;
+    }
+
+    /** Record ENTRY as the state of TARGET, appending it to the log unless
+     *  it is already the recorded state. */
+    synchronized void put(String target, Entry entry) {
+        if (!entry.equals(_entries.get(target))) {
+            _entries.put(target, entry);
+            append(record(target, entry));
+        }
+    }
+
+    /** Returns the cached stamp of the file named NAME, or null if there
+     *  is none. */
+    synchronized Stamp getStamp(String name) {
+        return _stamps.get(name);
+    }
+
+    /** Cache STAMP for the file named NAME. */
+    synchronized void putStamp(String name, Stamp stamp) {
+        _stamps.put(name, stamp);
+        append(record(name, stamp));
+    }
+
+    /** Append RECORD to the log. */
+    private void append(byte[] record) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                _log.write(buffer);
+            }
+            _records += 1;
+        } catch (IOException excp) {
+            error("could not write build state: %s", _path);
+        }
+    }
+
+    /** Finish using the log, compacting it if it has grown large. */
+    synchronized void close() {
+        try {
+            if (_records > COMPACTION_FACTOR * (_entries.size()
+                                                + _stamps.size())
+                && _records > MIN_COMPACTION) {
+                compact();
+            }
+            _log.force(false);
+            _log.close();
+        } catch (IOException excp) {
+            error("could not write build state: %s", _path);
+        }
+    }
+
+    /** Returns a 64-bit fingerprint of STRINGS, in order. */
+    static long fingerprint(List<String> strings) {
+        long h = FNV_OFFSET;
+        for (String s : strings) {
+            for (int i = 0; i < s.length(); i += 1) {
+                h = (h ^ s.charAt(i)) * FNV_PRIME;
+            }
+            h = (h ^ 0xffff) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** Read the log into _entries.  Returns false if it ends with a
+     *  damaged or incomplete record, or is not a state file at all. */
+    private boolean read() {
+        try (DataInputStream inp =
+             new DataInputStream(Files.newInputStream(_path))) {
+            if (inp.readInt() != MAGIC) {
+                error("not a make state file: %s", _path);
+            }
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = inp.readInt();
+                } catch (EOFException excp) {
+                    return true;
+                }
+                if (length <= 0 || length > MAX_RECORD) {
+                    return false;
+                }
+                byte[] body = new byte[length];
+                inp.readFully(body);
+                crc.reset();
+                crc.update(body);
+                if (inp.readInt() != (int) crc.getValue()) {
+                    return false;
+                }
+                DataInputStream fields =
+                    new DataInputStream(new ByteArrayInputStream(body));
+                byte kind = fields.readByte();
+                String name = fields.readUTF();
+                if (kind == TARGET) {
+                    _entries.put(name, new Entry(fields.readInt(),
+                                                 fields.readLong(),
+                                                 fields.readLong(),
+                                                 fields.readLong(),
+                                                 fields.readLong()));
+                } else if (kind == FILE) {
+                    _stamps.put(name, new Stamp(fields.readLong(),
+                                                fields.readLong(),
+                                                fields.readLong()));
+                } else {
+                    return false;
+                }
+                _records += 1;
+            }
+        } catch (EOFException excp) {
+            return false;
+        } catch (IOException excp) {
+            error("could not read build state: %s", _path);
+            return false;
+        }
+    }
+
+    /** Returns the log record for ENTRY as the state of TARGET. */
+    private static byte[] record(String target, Entry entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(TARGET);
+            out.writeUTF(target);
+            out.writeInt(entry.time());
+            out.writeLong(entry.commands());
+            out.writeLong(entry.dependencies());
+            out.writeLong(entry.inputs());
+            out.writeLong(entry.output());
+            return checked(bytes.toByteArray());
+        } catch (IOException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    /** Returns the log record for STAMP as the stamp of the file NAME. */
+    private static byte[] record(String name, Stamp stamp) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FILE);
+            out.writeUTF(name);
+            out.writeLong(stamp._size);
+            out.writeLong(stamp._modified);
+            out.writeLong(stamp._hash);
+            return checked(bytes.toByteArray());
+        } catch (IOException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    /** Returns the record holding BODY, preceded by its length and
+     *  followed by its checksum. */
+    private static byte[] checked(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer record = ByteBuffer.allocate(body.length + 8);
+        record.putInt(body.length).put(body).putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    /** Replace the log with one holding just the current entries, and
+     *  open it for appending. */
+    private void compact() throws IOException {
+        if (_log != null) {
+            _log.close();
+        }
+        Path dir = _path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, ".make", ".tmp");
+        try (DataOutputStream out =
+             new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+                out.write(record(e.getKey(), e.getValue()));
+            }
+            for (Map.Entry<String, Stamp> e : _stamps.entrySet()) {
+                out.write(record(e.getKey(), e.getValue()));
+            }
+        }
+        Files.move(temp, _path, StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING);
+        _records = _entries.size() + _stamps.size();
+        open();
+    }
+
+    /** Open the log for appending. */
+    private void open() throws IOException {
+        _log = FileChannel.open(_path, StandardOpenOption.WRITE,
+                                StandardOpenOption.APPEND);
+    }
+
+    /** First word of a state file. */
+    private static final int MAGIC = 0x4d4b5332;
+    /** First byte of a record for a target. */
+    private static final byte TARGET = 'T';
+    /** First byte of a record for a file stamp. */
+    private static final byte FILE = 'F';
+    /** Largest valid record body. */
+    private static final int MAX_RECORD = 1 << 16;
+    /** The log is compacted when it holds more than this many times as
+     *  many records as targets and files... */
+    private static final int COMPACTION_FACTOR = 4;
+    /** ... and more than this many records. */
+    private static final int MIN_COMPACTION = 256;
+    /** Parameters of the FNV-1a hash. */
+    private static final long
+        FNV_OFFSET = 0xcbf29ce484222325L,
+        FNV_PRIME = 0x100000001b3L;
+
+    /** Path of the log. */
+    private final Path _path;
+    /** The log, open for appending. */
+    private FileChannel _log;
+    /** Number of records in the log. */
+    private int _records;
+    /** The current state of each target. */
+    private final HashMap<String, Entry> _entries = new HashMap<>();
+    /** The cached stamp of each file. */
+    private final HashMap<String, Stamp> _stamps = new HashMap<>();
+}
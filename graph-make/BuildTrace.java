@@ -0,0 +1,169 @@
+package make;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static make.Main.error;
+
+/** A trace of the rules brought up to date in one run of make: for each
+ *  rule rebuilt, when it started and finished, the thread that built it,
+ *  why it was out of date, and whether its target came from the artifact
+ *  cache.  The trace is written as JSON in the trace-event format read by
+ *  Chrome's about:tracing and by Perfetto, with one complete ("X") event
+ *  per rule and one thread-name metadata event per thread.  Times are in
+ *  microseconds from the creation of the trace.  Safe for use by several
+ *  threads.
+ *  @author Yuhan Xie
+ */
+class BuildTrace {
+
+    /** A trace to be written to the file named FILENAME. */
+    BuildTrace(String fileName) {
+        _fileName = fileName;
+        _origin = System.nanoTime();
+    }
+
+    /** Record that the rule for TARGET was built by the current thread
+     *  from time START to END, as given by System.nanoTime, because of
+     *  REASON.  CACHE is "hit" or "miss" if the artifact cache was
+     *  consulted, and otherwise null.  FAILED is true iff the build
+     *  failed. */
+    synchronized void record(String target, long start, long end,
+                             String reason, String cache, boolean failed) {
+        String thread = Thread.currentThread().getName();
+        Integer tid = _threads.get(thread);
+        if (tid == null) {
+            tid = _threads.size() + 1;
+            _threads.put(thread, tid);
+            _threadNames.add(thread);
+        }
+        _events.add(new Event(target, start - _origin, end - start, tid,
+                              reason, cache, failed));
+    }
+
+    /** Write the trace to its file. */
+    synchronized void save() {
+        ArrayList<String> events = new ArrayList<>();
+        for (int i = 0; i < _threadNames.size(); i += 1) {
+            events.add(String.format("{\"name\": \"thread_name\", "
+                                     + "\"ph\": \"M\", \"pid\": 1, "
+                                     + "\"tid\": %d, "
+                                     + "\"args\": {\"name\": %s}}",
+                                     i + 1, quote(_threadNames.get(i))));
+        }
+        for (Event e : _events) {
+            events.add(e.toJson());
+        }
+        try (PrintWriter out = new PrintWriter(_fileName)) {
+            out.printf("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [%n");
+            out.println(String.join(String.format(",%n"), events));
+            out.println("]}");
+            if (out.checkError()) {
+                throw new IOException();
+            }
+        } catch (IOException excp) {
+            error("could not write build trace: %s", _fileName);
+        }
+    }
+
+    /** Print a table of the (at most) LIMIT slowest rules to OUT, slowest
+     *  first. */
+    synchronized void summarize(PrintStream out, int limit) {
+        if (_events.isEmpty()) {
+            return;
+        }
+        ArrayList<Event> slowest = new ArrayList<>(_events);
+        slowest.sort((a, b) -> Long.compare(b._duration, a._duration));
+        out.printf("make: slowest rules:%n");
+        for (Event e : slowest.subList(0, Math.min(limit, slowest.size()))) {
+            out.printf("  %9.3f s  %s (%s%s%s)%n",
+                       e._duration * 1e-9, e._target, e._reason,
+                       e._cache == null ? "" : "; cache " + e._cache,
+                       e._failed ? "; failed" : "");
+        }
+    }
+
+    /** Returns S as a JSON string literal. */
+    static String quote(String s) {
+        StringBuilder result = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i += 1) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /** One rule's build. */
+    private static class Event {
+        /** The build of TARGET, starting START nanoseconds after the
+         *  trace did and lasting DURATION nanoseconds, on the thread
+         *  numbered TID, because of REASON, with cache result CACHE (or
+         *  null), and failing iff FAILED. */
+        Event(String target, long start, long duration, int tid,
+              String reason, String cache, boolean failed) {
+            _target = target;
+            _start = start;
+            _duration = duration;
+            _tid = tid;
+            _reason = reason;
+            _cache = cache;
+            _failed = failed;
+        }
+
+        /** Returns my complete event in trace-event JSON. */
+        String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append(String.format("{\"name\": %s, \"cat\": \"rule\", "
+                                      + "\"ph\": \"X\", \"ts\": %d, "
+                                      + "\"dur\": %d, \"pid\": 1, "
+                                      + "\"tid\": %d, ",
+                                      quote(_target),
+                                      _start / NANOS_PER_MICRO,
+                                      Math.max(1, _duration / NANOS_PER_MICRO),
+                                      _tid));
+            json.append("\"args\": {\"reason\": ").append(quote(_reason));
+            if (_cache != null) {
+                json.append(", \"cache\": ").append(quote(_cache));
+            }
+            if (_failed) {
+                json.append(", \"failed\": true");
+            }
+            return json.append("}}").toString();
+        }
+
+        /** The target built. */
+        private final String _target;
+        /** Start time and duration in nanoseconds. */
+        private final long _start, _duration;
+        /** Number of the building thread. */
+        private final int _tid;
+        /** Why the rule was out of date, and the cache result or null. */
+        private final String _reason, _cache;
+        /** True iff the build failed. */
+        private final boolean _failed;
+    }
+
+    /** Nanoseconds in a microsecond. */
+    private static final long NANOS_PER_MICRO = 1000;
+
+    /** Name of the file to hold the trace. */
+    private final String _fileName;
+    /** Value of System.nanoTime when the trace began. */
+    private final long _origin;
+    /** The builds recorded, in order of completion. */
+    private final ArrayList<Event> _events = new ArrayList<>();
+    /** Number of each thread seen, by name. */
+    private final HashMap<String, Integer> _threads = new HashMap<>();
+    /** Names of the threads seen, in order of their numbers. */
+    private final ArrayList<String> _threadNames = new ArrayList<>();
+}
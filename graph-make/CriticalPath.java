@@ -0,0 +1,74 @@
+package make;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/** The longest chains of rules, by total cost, from each of a set of rules
+ *  in a dependency graph to the target that requested them.  Scheduler
+ *  uses the chain lengths estimated from the build history to decide which
+ *  ready rule to start first; after a build, the chain that actually took
+ *  longest (the "critical path") is reported.
+ *  @author Yuhan Xie
+ */
+class CriticalPath {
+
+    /** The longest chains in DEPENDS among the rules at the vertices in
+     *  ORDER, which lists each vertex after those it depends on, where the
+     *  rule at vertex U costs COST[U]. */
+    CriticalPath(Depends depends, List<Integer> order, double[] cost) {
+        _depends = depends;
+        int size = depends.maxVertex() + 1;
+        BitSet members = new BitSet(size);
+        for (int u : order) {
+            members.set(u);
+        }
+        _length = new double[size];
+        _next = new int[size];
+        for (int i = order.size() - 1; i >= 0; i -= 1) {
+            int u = order.get(i);
+            double longest;
+            longest = 0.0;
+            for (int w : depends.predecessors(u)) {
+                if (members.get(w)
+                    && (_next[u] == 0 || _length[w] > longest)) {
+                    longest = _length[w];
+                    _next[u] = w;
+                }
+            }
+            _length[u] = cost[u] + longest;
+            if (_first == 0 || _length[u] > _length[_first]) {
+                _first = u;
+            }
+        }
+    }
+
+    /** Returns the greatest total cost of the rules along a chain from
+     *  the rule at vertex U to the requested target. */
+    double length(int u) {
+        return _length[u];
+    }
+
+    /** Print the longest chain of all, and its cost in seconds, on the
+     *  standard error, unless no rule had any cost. */
+    void report() {
+        if (_first == 0 || _length[_first] <= 0.0) {
+            return;
+        }
+        ArrayList<String> path = new ArrayList<>();
+        for (int u = _first; u != 0; u = _next[u]) {
+            path.add(_depends.getLabel(u).getTarget());
+        }
+        System.err.printf("make: critical path (%.3f s): %s%n",
+                          _length[_first], String.join(" -> ", path));
+    }
+
+    /** The dependency graph. */
+    private final Depends _depends;
+    /** Length of the longest chain from each vertex to the target. */
+    private final double[] _length;
+    /** Next vertex along that chain, or 0 at the target. */
+    private final int[] _next;
+    /** Start of the longest chain of all, or 0 if there are no rules. */
+    private int _first;
+}
@@ -3,9 +3,17 @@ package make;
 import graph.DirectedGraph;
 import graph.LabeledGraph;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
 /** A directed, labeled subtype of Graph that describes dependencies between
  *  targets in a Makefile. The nodes correspond to Rules and edges out
  *  of rules are numbered to indicate the ordering of dependencies.
+ *  For parallel builds, it also keeps a count, for each rule waiting to be
+ *  built, of the dependencies it is still waiting for.
  *  @author Yuhan Xie
  */
 class Depends extends LabeledGraph<Rule, Integer> {
@@ -14,4 +22,82 @@ class Depends extends LabeledGraph<Rule, Integer> {
         super(new DirectedGraph());
 
     }
+
+    /** Mark as pending the unfinished rules on which the rule at vertex V
+     *  depends, directly or indirectly, together with V's own rule if it is
+     *  unfinished, and set the remaining-dependency count of each to its
+     *  number of unfinished dependencies.  Returns the pending vertices
+     *  whose counts are 0, which may be built at once. */
+    List<Integer> schedule(int v) {
+        int size = maxVertex() + 1;
+        if (_remaining.length < size) {
+            _remaining = new int[size];
+        }
+        _pending.clear();
+        _scheduled.clear();
+        ArrayList<Integer> ready = new ArrayList<>();
+        if (!getLabel(v).isUnfinished()) {
+            return ready;
+        }
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        ArrayDeque<Iterator<Integer>> rest = new ArrayDeque<>();
+        _pending.set(v);
+        _remaining[v] = 0;
+        stack.push(v);
+        rest.push(successors(v));
+        while (!stack.isEmpty()) {
+            int u = stack.peek();
+            Iterator<Integer> next = rest.peek();
+            if (next.hasNext()) {
+                int w = next.next();
+                if (getLabel(w).isUnfinished()) {
+                    _remaining[u] += 1;
+                    if (!_pending.get(w)) {
+                        _pending.set(w);
+                        _remaining[w] = 0;
+                        stack.push(w);
+                        rest.push(successors(w));
+                    }
+                }
+            } else {
+                stack.pop();
+                rest.pop();
+                _scheduled.add(u);
+                if (_remaining[u] == 0) {
+                    ready.add(u);
+                }
+            }
+        }
+        return ready;
+    }
+
+    /** Returns the vertices marked pending by the last call of schedule,
+     *  each following all those it depends on. */
+    List<Integer> scheduled() {
+        return _scheduled;
+    }
+
+    /** Record that the pending rule at vertex V has been built.  Returns
+     *  the pending vertices that depend on V and are no longer waiting for
+     *  anything. */
+    List<Integer> finished(int v) {
+        _pending.clear(v);
+        ArrayList<Integer> ready = new ArrayList<>();
+        for (int u : predecessors(v)) {
+            if (_pending.get(u)) {
+                _remaining[u] -= 1;
+                if (_remaining[u] == 0) {
+                    ready.add(u);
+                }
+            }
+        }
+        return ready;
+    }
+
+    /** Number of unfinished dependencies of each pending rule. */
+    private int[] _remaining = new int[0];
+    /** Vertices of the rules waiting to be built. */
+    private final BitSet _pending = new BitSet();
+    /** The vertices scheduled by the last call of schedule, in order. */
+    private final ArrayList<Integer> _scheduled = new ArrayList<>();
 }
@@ -0,0 +1,123 @@
+package make;
+
+import java.io.IOException;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static make.Main.error;
+
+/** Computes 64-bit hashes of the contents of files.  Files are read by
+ *  mapping them into memory and consuming eight bytes at a time, mixing
+ *  each word as in MurmurHash3.  Each hash is cached in the build state
+ *  with the size and modification time of the file, and a file whose size
+ *  and time still match is not read again, in this run or a later one.
+ *  Files modified very recently are not cached, since a second change
+ *  within the resolution of the file system's clock would go unseen.
+ *  Safe for use by several threads.
+ *  @author Yuhan Xie
+ */
+class FileHasher {
+
+    /** A hasher caching its results in STATE, or not caching them if
+     *  STATE is null. */
+    FileHasher(BuildState state) {
+        _state = state;
+    }
+
+    /** Returns the content hash of the file named NAME, or null if there
+     *  is no such regular file. */
+    Long hash(String name) {
+        Path path = Paths.get(name);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class,
+                                         LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException excp) {
+            return null;
+        }
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        BuildState.Stamp stamp = _state == null ? null : _state.getStamp(name);
+        if (stamp != null && stamp.matches(size, modified)) {
+            return stamp.hash();
+        }
+        long hash = contentHash(path);
+        if (_state != null
+            && System.currentTimeMillis() - modified > RACY_MILLIS) {
+            _state.putStamp(name, new BuildState.Stamp(size, modified, hash));
+        }
+        return hash;
+    }
+
+    /** Returns the hash of the contents of the file at PATH. */
+    static long contentHash(Path path) {
+        try (FileChannel channel =
+             FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long h = SEED;
+            for (long pos = 0; pos < size; pos += CHUNK) {
+                long len = Math.min(CHUNK, size - pos);
+                MappedByteBuffer chunk =
+                    channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+                while (chunk.remaining() >= 8) {
+                    h = mix(h, chunk.getLong());
+                }
+                long tail;
+                tail = 0;
+                for (int shift = 0; chunk.hasRemaining(); shift += 8) {
+                    tail |= (chunk.get() & 0xffL) << shift;
+                }
+                h = mix(h, tail);
+            }
+            return finish(h ^ size);
+        } catch (IOException excp) {
+            error("could not read %s", path);
+            return 0;
+        }
+    }
+
+    /** Returns hash H updated with the word K. */
+    private static long mix(long h, long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        k *= C2;
+        h ^= k;
+        return Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+    }
+
+    /** Returns H with its bits fully mixed. */
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** A file modified less than this many milliseconds ago might be
+     *  modified again without changing its size or time, so its hash is
+     *  not cached. */
+    private static final long RACY_MILLIS = 2000;
+    /** Largest portion of a file mapped at once.  A multiple of 8. */
+    private static final long CHUNK = 1L << 28;
+    /** Parameters of the hash. */
+    private static final long
+        SEED = 0x9e3779b97f4a7c15L,
+        C1 = 0x87c37b91114253d5L,
+        C2 = 0x4cf5ad432745937fL;
+
+    /** Where hashes are cached, or null. */
+    private final BuildState _state;
+}
@@ -10,13 +10,25 @@ public final class Main {
 
     /** Entry point for the CS61B make program.  RAWARGS may contain options
      *  and targets:
-     *      [ -f MAKEFILE ] [ -D FILEINFO ] TARGET1 TARGET2 ...
+     *      [ -f MAKEFILE ] [ -D FILEINFO ] [ -j JOBS ] [ -H HISTORY ] [ -x ]
+     *      [ -S STATE [ -c ] ] [ --cache=DIR [ --cache-size=BYTES ] ]
+     *      [ --snapshot=SNAPSHOT ] [ --trace=TRACE ] TARGET1 TARGET2 ...
+     *  With -x, commands are run as well as printed.  With -c, targets are
+     *  rebuilt only when the contents of their inputs change.  With
+     *  --cache, built targets are kept in DIR and restored from there when
+     *  their commands and inputs match.  With --snapshot, the parsed
+     *  makefile is saved in SNAPSHOT and reused until the makefile changes.
+     *  With --trace, the rules rebuilt are written to TRACE as Chrome
+     *  trace events, and the slowest are listed on the standard error.
      */
     public static void main(String... rawArgs) {
         String makefileName;
         String fileInfoName;
-        CommandArgs args = new CommandArgs("-f={0,1} -D={0,1} --={1,}",
-                                           rawArgs);
+        CommandArgs args =
+            new CommandArgs("-f={0,1} -D={0,1} -j={0,1} -H={0,1} -x "
+                            + "-S={0,1} -c --cache={0,1} --cache-size={0,1} "
+                            + "--snapshot={0,1} --trace={0,1} --={1,}",
+                            rawArgs);
 
         if (!args.ok()) {
             usage();
@@ -28,36 +40,131 @@ public final class Main {
         ArrayList<String> targets = new ArrayList<String>();
 
         Maker maker = new Maker();
+        boolean ok;
+        ok = false;
 
         try {
+            maker.setJobs(jobs(args.getFirst("-j", "1")));
+            maker.setRunCommands(args.contains("-x"));
+            if (args.getFirst("-S") != null) {
+                maker.setState(args.getFirst("-S"));
+            }
+            maker.setBuildByContent(args.contains("-c"));
+            if (args.getFirst("--cache") != null) {
+                maker.setCache(args.getFirst("--cache"),
+                               cacheSize(args.getFirst("--cache-size",
+                                                       DEFAULT_CACHE_SIZE)));
+            }
+            if (args.getFirst("-H") != null) {
+                maker.setHistory(args.getFirst("-H"));
+            }
+            if (args.getFirst("--snapshot") != null) {
+                maker.setSnapshot(args.getFirst("--snapshot"));
+            }
+            if (args.getFirst("--trace") != null) {
+                maker.setTrace(args.getFirst("--trace"));
+            }
             maker.readFileAges(fileInfoName);
             maker.readMakefile(makefileName);
             for (String target : args.get("--")) {
                 maker.build(target);
             }
+            maker.saveState();
+            ok = true;
         } catch (IllegalArgumentException | IllegalStateException excp) {
             System.err.printf("make: %s%n", excp.getMessage());
+        } finally {
+            ok &= finish(maker);
+        }
+        if (!ok) {
             System.exit(1);
         }
     }
 
+    /** Save what MAKER has learned in this run, even if it failed:
+     *  the time taken by each rule that was built, and the trace of the
+     *  rules built, including any that failed.  Returns false if that
+     *  could not be done, after reporting the errors. */
+    private static boolean finish(Maker maker) {
+        boolean ok;
+        ok = true;
+        for (Runnable save : new Runnable[] {
+                maker::saveHistory, maker::saveTrace }) {
+            try {
+                save.run();
+            } catch (IllegalArgumentException excp) {
+                System.err.printf("make: %s%n", excp.getMessage());
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
     /** Throw an exception containing a message constructed from FORMAT
      *  and ARGS, as for String.format. */
     static void error(String format, Object... args) {
         throw new IllegalArgumentException(String.format(format, args));
     }
 
+    /** Returns the number of jobs given by the -j option value ARG. */
+    private static int jobs(String arg) {
+        try {
+            return Integer.parseInt(arg);
+        } catch (NumberFormatException excp) {
+            error("bad number of jobs: %s", arg);
+            return 0;
+        }
+    }
+
+    /** Returns the cache size in bytes given by the --cache-size option
+     *  value ARG. */
+    private static long cacheSize(String arg) {
+        try {
+            return Long.parseLong(arg);
+        } catch (NumberFormatException excp) {
+            error("bad cache size: %s", arg);
+            return 0;
+        }
+    }
+
     /** Print a brief usage message and exit program abnormally. */
     private static void usage() {
         System.err.printf("Usage: java make [-D FILEINFO] [-f MAKEFILE] "
+                          + "[-j JOBS] [-H HISTORY] [-x] [-S STATE [-c]]%n"
+                          + "            [--cache=DIR [--cache-size=BYTES]] "
+                          + "[--snapshot=SNAPSHOT] [--trace=TRACE] "
                           + "TARGET...%n"
                           + "   FILEINFO contains the current time and change "
                           + "times for files%n"
                           + "      (default 'fileinfo').%n"
                           + "   MAKEFILE contains dependency information and "
                           + "build commands%n"
-                          + "      (default Makefile).%n");
+                          + "      (default Makefile).%n"
+                          + "   JOBS is the number of rules that may be "
+                          + "built at once%n"
+                          + "      (default 1).%n"
+                          + "   HISTORY records how long each target took "
+                          + "to build, for%n"
+                          + "      scheduling parallel builds.%n"
+                          + "   -x runs the commands, rather than just "
+                          + "printing them.%n"
+                          + "   STATE records the targets built, so that "
+                          + "later runs need%n"
+                          + "      not rebuild them.%n"
+                          + "   -c rebuilds targets only when the contents "
+                          + "of their inputs or%n"
+                          + "      their commands change (requires -S).%n"
+                          + "   DIR caches built targets for reuse "
+                          + "(requires -x); BYTES%n"
+                          + "      limits its size (default 1 GB).%n"
+                          + "   SNAPSHOT holds the parsed makefile, "
+                          + "for faster starts.%n"
+                          + "   TRACE receives a Chrome trace of the rules "
+                          + "rebuilt.%n");
         System.exit(1);
     }
 
+    /** Default limit on the size of the build cache, in bytes. */
+    private static final String DEFAULT_CACHE_SIZE = "1073741824";
+
 }
@@ -0,0 +1,226 @@
+package make;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/** A single-pass lexer for makefiles, working directly on the bytes of
+ *  the file.  It classifies each line as make's original regular
+ *  expressions did, without creating a String for it:
+ *  <ul>
+ *  <li> A line of whitespace, possibly followed by a comment starting with
+ *       '#', is ignored.
+ *  <li> A header line starts with a target (one or more characters other
+ *       than ':' and whitespace), then optional whitespace, ':', and a
+ *       possibly empty list of prerequisites, separated by blanks and
+ *       surrounded by optional whitespace.  A target containing '=', '#',
+ *       or '\' is bad, as is a prerequisite list containing any of those or
+ *       ':'.
+ *  <li> Any other line starting with whitespace is a command.
+ *  <li> Any other line is erroneous.
+ *  </ul>
+ *  Whitespace is as for the regular-expression class \s.  Lines end at
+ *  \n, \r\n, \r, or the UTF-8 encodings of U+0085, U+2028, and U+2029, as
+ *  for Scanner.nextLine.  Target and prerequisite names are interned
+ *  straight from the bytes into a TargetTable, so that each distinct name
+ *  is decoded into a String only once and is known by its id there.
+ *  Strings for whole lines are made only on request.
+ *  @author Yuhan Xie
+ */
+class MakefileLexer {
+
+    /** Kinds of line returned by next. */
+    static final int END = 0, HEADER = 1, COMMAND = 2, ERRONEOUS = 3;
+
+    /** A lexer for the makefile whose contents are TEXT, encoded in the
+     *  default character set, that interns names into NAMES. */
+    MakefileLexer(byte[] text, TargetTable names) {
+        _text = text;
+        _names = names;
+        _charset = Charset.defaultCharset();
+    }
+
+    /** Advance to the next line that is not ignored and return its kind,
+     *  or END if there is none. */
+    int next() {
+        byte[] b = _text;
+        while (_pos < b.length) {
+            int start = _pos;
+            int end = lineEnd(start);
+            _lineStart = start;
+            _lineEnd = end;
+            int i = skipSpace(start, end);
+            if (i == end || b[i] == '#') {
+                continue;
+            } else if (i > start) {
+                return COMMAND;
+            }
+            int j = start;
+            while (j < end && b[j] != ':' && !isSpace(b[j])) {
+                j += 1;
+            }
+            if (j == start) {
+                return ERRONEOUS;
+            }
+            int k = skipSpace(j, end);
+            if (k == end || b[k] != ':') {
+                return ERRONEOUS;
+            }
+            header(start, j, skipSpace(k + 1, end), end);
+            return HEADER;
+        }
+        return END;
+    }
+
+    /** Returns the text of the current line. */
+    String line() {
+        return new String(_text, _lineStart, _lineEnd - _lineStart,
+                          _charset);
+    }
+
+    /** Returns the id in my TargetTable of the target of the current
+     *  header line. */
+    int target() {
+        return _target;
+    }
+
+    /** Returns true iff the target of the current header line is bad. */
+    boolean badTarget() {
+        return _badTarget;
+    }
+
+    /** Returns true iff the prerequisites of the current header line are
+     *  bad. */
+    boolean badPrerequisites() {
+        return _badPrerequisites;
+    }
+
+    /** Returns the text of the prerequisite list of the current header
+     *  line, without surrounding whitespace. */
+    String prerequisiteText() {
+        return new String(_text, _prereqStart, _prereqEnd - _prereqStart,
+                          _charset);
+    }
+
+    /** Returns the number of prerequisites of the current header line,
+     *  which must not be bad. */
+    int prerequisiteCount() {
+        return _count;
+    }
+
+    /** Returns the id in my TargetTable of the Kth prerequisite of the
+     *  current header line. */
+    int prerequisite(int k) {
+        return _prerequisites[k];
+    }
+
+    /** Returns the end of the line starting at START, and set _pos to the
+     *  start of the next line. */
+    private int lineEnd(int start) {
+        byte[] b = _text;
+        for (int i = start; i < b.length; i += 1) {
+            byte c = b[i];
+            if (c == '\n') {
+                _pos = i + 1;
+                return i;
+            } else if (c == '\r') {
+                _pos = i + 1 < b.length && b[i + 1] == '\n' ? i + 2 : i + 1;
+                return i;
+            } else if (c == (byte) 0xc2 && i + 1 < b.length
+                       && b[i + 1] == (byte) 0x85) {
+                _pos = i + 2;
+                return i;
+            } else if (c == (byte) 0xe2 && i + 2 < b.length
+                       && b[i + 1] == (byte) 0x80
+                       && (b[i + 2] == (byte) 0xa8
+                           || b[i + 2] == (byte) 0xa9)) {
+                _pos = i + 3;
+                return i;
+            }
+        }
+        _pos = b.length;
+        return b.length;
+    }
+
+    /** Record the header line with target in [START .. TARGETEND) and
+     *  prerequisites starting at PREREQSTART, ending at END. */
+    private void header(int start, int targetEnd, int prereqStart,
+                        int end) {
+        byte[] b = _text;
+        _badTarget = false;
+        for (int i = start; i < targetEnd; i += 1) {
+            if (b[i] == '=' || b[i] == '#' || b[i] == '\\') {
+                _badTarget = true;
+            }
+        }
+        _target = _names.intern(b, start, targetEnd);
+        while (end > prereqStart && isSpace(b[end - 1])) {
+            end -= 1;
+        }
+        _prereqStart = prereqStart;
+        _prereqEnd = end;
+        _badPrerequisites = false;
+        _count = 0;
+        for (int i = prereqStart; i < end; i += 1) {
+            byte c = b[i];
+            if (c == ':' || c == '=' || c == '#' || c == '\\') {
+                _badPrerequisites = true;
+                return;
+            }
+        }
+        int i = prereqStart;
+        while (i < end) {
+            int j = i;
+            while (j < end && b[j] != ' ' && b[j] != '\t') {
+                j += 1;
+            }
+            if (_count == _prerequisites.length) {
+                _prerequisites = Arrays.copyOf(_prerequisites, 2 * _count);
+            }
+            _prerequisites[_count] = _names.intern(b, i, j);
+            _count += 1;
+            while (j < end && (b[j] == ' ' || b[j] == '\t')) {
+                j += 1;
+            }
+            i = j;
+        }
+    }
+
+    /** Returns the first position at or after I and before END that is
+     *  not whitespace, or END if there is none. */
+    private int skipSpace(int i, int end) {
+        while (i < end && isSpace(_text[i])) {
+            i += 1;
+        }
+        return i;
+    }
+
+    /** Returns true iff C is a whitespace character, as for \s. */
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0b || c == '\f'
+            || c == '\r';
+    }
+
+    /** Initial capacity of the prerequisite list. */
+    private static final int INITIAL_SIZE = 64;
+
+    /** The makefile. */
+    private final byte[] _text;
+    /** The table into which names are interned. */
+    private final TargetTable _names;
+    /** The makefile's encoding. */
+    private final Charset _charset;
+    /** Start of the next line. */
+    private int _pos;
+    /** Bounds of the current line. */
+    private int _lineStart, _lineEnd;
+    /** Target id of the current header. */
+    private int _target;
+    /** True iff the current header's target or prerequisites are bad. */
+    private boolean _badTarget, _badPrerequisites;
+    /** Bounds of the current header's prerequisite list. */
+    private int _prereqStart, _prereqEnd;
+    /** Ids of the current header's prerequisites. */
+    private int[] _prerequisites = new int[INITIAL_SIZE];
+    /** Number of prerequisites. */
+    private int _count;
+}
@@ -0,0 +1,184 @@
+package make;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static make.Main.error;
+
+/** A compiled form of a makefile: the targets, dependencies, and commands
+ *  of its rules, saved after the makefile is parsed and loaded in place of
+ *  parsing it on later runs.  A snapshot records the content hash of the
+ *  makefile it came from, and is used only if the makefile still has that
+ *  hash.
+ *
+ *  The file holds a header (magic number, version, makefile hash, number
+ *  of rules), then for each rule, in order of vertex number, its target,
+ *  the vertex numbers of its dependencies, and its commands.  Strings are
+ *  stored as a byte count followed by UTF-8 bytes.  Loading maps the file
+ *  into memory and decodes it completely before creating any rules, so a
+ *  damaged snapshot is simply ignored.  A snapshot is written to a
+ *  temporary file and moved into place atomically.
+ *  @author Yuhan Xie
+ */
+class MakefileSnapshot {
+
+    /** The snapshot kept in the file named FILENAME. */
+    MakefileSnapshot(String fileName) {
+        _path = Paths.get(fileName);
+    }
+
+    /** Returns the content hash of the makefile named MAKEFILENAME. */
+    static long makefileHash(String makefileName) {
+        Path path = Paths.get(makefileName);
+        if (!Files.isRegularFile(path)) {
+            error("Could not find makefile: %s", makefileName);
+        }
+        return FileHasher.contentHash(path);
+    }
+
+    /** If I hold the rules of a makefile whose content hash is HASH, add
+     *  them to MAKER and return true.  Otherwise return false. */
+    boolean load(Maker maker, long hash) {
+        if (!Files.isRegularFile(_path)) {
+            return false;
+        }
+        String[] targets;
+        int[][] dependencies;
+        ArrayList<List<String>> commands = new ArrayList<>();
+        try (FileChannel channel =
+             FileChannel.open(_path, StandardOpenOption.READ)) {
+            MappedByteBuffer data =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC
+                || data.getInt() != VERSION || data.getLong() != hash) {
+                return false;
+            }
+            int n = data.getInt();
+            if (n < 0 || n > data.remaining()) {
+                return false;
+            }
+            targets = new String[n + 1];
+            dependencies = new int[n + 1][];
+            commands.add(null);
+            for (int v = 1; v <= n; v += 1) {
+                targets[v] = string(data);
+                dependencies[v] = new int[count(data)];
+                for (int i = 0; i < dependencies[v].length; i += 1) {
+                    int w = data.getInt();
+                    if (w < 1 || w > n) {
+                        return false;
+                    }
+                    dependencies[v][i] = w;
+                }
+                String[] lines = new String[count(data)];
+                for (int i = 0; i < lines.length; i += 1) {
+                    lines[i] = string(data);
+                }
+                commands.add(Arrays.asList(lines));
+            }
+        } catch (IOException | BufferUnderflowException
+                 | IllegalArgumentException excp) {
+            return false;
+        }
+        maker.loadRules(targets, dependencies, commands);
+        return true;
+    }
+
+    /** Save the rules of MAKER, whose makefile has content hash HASH. */
+    void save(Maker maker, long hash) {
+        Depends depends = maker.getGraph();
+        int n = depends.maxVertex();
+        Path temp = null;
+        try {
+            Path dir = _path.toAbsolutePath().getParent();
+            temp = Files.createTempFile(dir, ".make", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(hash);
+                out.writeInt(n);
+                ArrayList<Integer> deps = new ArrayList<>();
+                for (int v = 1; v <= n; v += 1) {
+                    Rule rule = depends.getLabel(v);
+                    writeString(out, rule.getTarget());
+                    deps.clear();
+                    for (int w : depends.successors(v)) {
+                        deps.add(w);
+                    }
+                    out.writeInt(deps.size());
+                    for (int w : deps) {
+                        out.writeInt(w);
+                    }
+                    List<String> lines = rule.getCommands();
+                    out.writeInt(lines.size());
+                    for (String line : lines) {
+                        writeString(out, line);
+                    }
+                }
+            }
+            Files.move(temp, _path, StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+        } catch (IOException excp) {
+            error("could not write makefile snapshot: %s", _path);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException excp) {
+                    /* Ignore */
+                }
+            }
+        }
+    }
+
+    /** Returns the next count in DATA, checking that it is plausible. */
+    private static int count(MappedByteBuffer data) {
+        int n = data.getInt();
+        if (n < 0 || n > data.remaining()) {
+            throw new IllegalArgumentException("bad count");
+        }
+        return n;
+    }
+
+    /** Returns the next string in DATA. */
+    private static String string(MappedByteBuffer data) {
+        byte[] bytes = new byte[count(data)];
+        data.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /** Write S to OUT as a byte count and UTF-8 bytes. */
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** First word of a snapshot. */
+    private static final int MAGIC = 0x4d4b4631;
+    /** Version of the snapshot format. */
+    private static final int VERSION = 1;
+    /** Size of the header in bytes. */
+    private static final int HEADER_SIZE = 20;
+
+    /** Path of the snapshot. */
+    private final Path _path;
+}
@@ -1,20 +1,24 @@
 package make;
 
 import graph.DepthFirstTraversal;
+import graph.StronglyConnectedComponents;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.Scanner;
+import java.util.TreeMap;
 
-import static java.util.Arrays.asList;
 import static make.Main.error;
 
 /** Represents a makefile.
@@ -22,20 +26,8 @@ import static make.Main.error;
  */
 class Maker {
 
-    /** Describes Makefile lines that are ignored. */
-    static final Pattern IGNORED = Pattern.compile("\\s*(#.*)?");
-    /** Describes a rule header in a makefile:  TARGET: DEPENDENCIES. */
-    static final Pattern HEADER =
-        Pattern.compile("([^:\\s]+)\\s*:\\s*(.*?)\\s*");
-    /** Describes a sequence of valid targets and whitespace. */
-    static final Pattern TARGETS = Pattern.compile("[^:=#\\\\]*$");
-    /** Describes an indented command line. */
-    static final Pattern COMMAND = Pattern.compile("(\\s+.*)");
-    /** Describes the separator on dependencies lines. */
-    static final Pattern SPACES = Pattern.compile("\\p{Blank}+");
-
     /** Read and store the ages of existing targets from the
-     *  file named FILEINFONAME. */
+     *  file named FILEINFONAME.  Each target named there gets a rule. */
     void readFileAges(String fileInfoName) {
         String name;
         name = "<unknown>";
@@ -47,9 +39,14 @@ class Maker {
             while (inp.hasNext()) {
                 target = inp.next();
                 age = inp.nextInt();
-                _ages.put(target, age);
+                Rule rule = rule(target);
+                setAge(rule.getVertex(), age);
+                rule.resetTime();
             }
             inp.close();
+            if (_state != null) {
+                _currentTime = Math.max(_currentTime, _state.latestTime());
+            }
         } catch (NoSuchElementException excp) {
             error("Near entry for %s: %s", name, excp.getMessage());
         } catch (FileNotFoundException excp) {
@@ -58,125 +55,487 @@ class Maker {
     }
 
     /** Read make rules from the file named MAKEFILENAME and form the dependence
-     *  graph with targets as vertices. */
+     *  graph with targets as vertices.  If I keep a makefile snapshot and
+     *  it is of the same makefile, load the rules from there instead, and
+     *  otherwise save them there after reading them. */
     void readMakefile(String makefileName) {
-        Scanner inp;
-        String target;
-        ArrayList<String> dependencies;
-        ArrayList<String> commands;
+        if (_snapshot == null) {
+            parseMakefile(makefileName);
+            return;
+        }
+        long hash = MakefileSnapshot.makefileHash(makefileName);
+        if (!_snapshot.load(this, hash)) {
+            parseMakefile(makefileName);
+            _snapshot.save(this, hash);
+        }
+    }
 
-        target = null;
-        dependencies = null;
-        commands = null;
+    /** Keep a compiled form of the makefile in the file named
+     *  FILENAME. */
+    void setSnapshot(String fileName) {
+        _snapshot = new MakefileSnapshot(fileName);
+    }
+
+    /** Add rules for TARGETS[1], TARGETS[2], ..., as loaded from a
+     *  makefile snapshot, the Vth having the rules for the targets
+     *  TARGETS[W] for each W in DEPENDENCIES[V] as its dependencies and
+     *  COMMANDS.get(V) as its commands. */
+    void loadRules(String[] targets, int[][] dependencies,
+                   List<List<String>> commands) {
+        Rule[] rules = new Rule[targets.length];
+        for (int v = 1; v < targets.length; v += 1) {
+            rules[v] = rule(targets[v]);
+        }
+        for (int v = 1; v < targets.length; v += 1) {
+            for (int w : dependencies[v]) {
+                rules[v].addDependency(rules[w]);
+            }
+            rules[v].addCommands(commands.get(v));
+        }
+    }
+
+    /** Read make rules from the file named MAKEFILENAME and form the
+     *  dependence graph with targets as vertices. */
+    private void parseMakefile(String makefileName) {
+        MakefileLexer lexer;
         try {
-            inp = new Scanner(new FileReader(makefileName));
-        } catch (FileNotFoundException excp) {
+            lexer = new MakefileLexer(Files.readAllBytes(
+                                          Paths.get(makefileName)),
+                                      _names);
+        } catch (IOException excp) {
             error("Could not find makefile: %s", makefileName);
             return;
         }
-        while (inp.hasNextLine()) {
-            String line = inp.nextLine();
-            Matcher parsed;
-            parsed = IGNORED.matcher(line);
-            if (parsed.matches()) {
-                continue;
-            }
-            parsed = HEADER.matcher(line);
-            if (parsed.matches()) {
-                addRule(target, dependencies, commands);
-                target = parsed.group(1);
-                if (!TARGETS.matcher(target).matches()) {
-                    error("Bad target: '%s'", target);
+        int target;
+        int[] dependencies = new int[16];
+        int count;
+        ArrayList<String> commands;
+
+        target = -1;
+        count = 0;
+        commands = null;
+        for (int kind = lexer.next(); kind != MakefileLexer.END;
+             kind = lexer.next()) {
+            if (kind == MakefileLexer.HEADER) {
+                addRule(target, dependencies, count, commands);
+                addRules();
+                target = lexer.target();
+                if (lexer.badTarget()) {
+                    error("Bad target: '%s'", _names.name(target));
                 }
-                if (!TARGETS.matcher(parsed.group(2)).matches()) {
+                if (lexer.badPrerequisites()) {
                     error("One or more bad prerequisites: '%s'",
-                          parsed.group(2));
+                          lexer.prerequisiteText());
+                }
+                count = lexer.prerequisiteCount();
+                if (count > dependencies.length) {
+                    dependencies = new int[2 * count];
                 }
-                dependencies = new ArrayList<>();
-                if (!parsed.group(2).isEmpty()) {
-                    dependencies.addAll(asList(SPACES.split(parsed.group(2))));
+                for (int i = 0; i < count; i += 1) {
+                    dependencies[i] = lexer.prerequisite(i);
                 }
                 commands = new ArrayList<>();
-                continue;
-            }
-            parsed = COMMAND.matcher(line);
-            if (target != null && parsed.matches()) {
-                commands.add(parsed.group(1));
+            } else if (kind == MakefileLexer.COMMAND && target >= 0) {
+                commands.add(lexer.line());
             } else {
-                error("Erroneous input line: '%s'", line);
+                error("Erroneous input line: '%s'", lexer.line());
             }
         }
-        addRule(target, dependencies, commands);
+        addRule(target, dependencies, count, commands);
+        checkForCycles();
     }
 
     /** Add rule
-     *      TARGET: DEPENDENCIES
+     *      TARGET: DEPENDENCIES[0 .. COUNT - 1]
      *          COMMANDS
-     *  to makegraph, or add DEPENDENCIES and COMMANDS to that rule, if it
-     *  already exists.  Returns the rule. */
-    private Rule addRule(String target,
-                         List<String> dependencies,
+     *  to makegraph, or add the dependencies and COMMANDS to that rule, if
+     *  it already exists, where TARGET and DEPENDENCIES are the vertices
+     *  of rules.  Does nothing if TARGET is negative. */
+    private void addRule(int target, int[] dependencies, int count,
                          List<String> commands) {
-        if (target != null) {
-            Rule rule;
-            rule = _targets.get(target);
-            if (rule == null) {
-                rule = new Rule(this, target);
-                _targets.put(target, rule);
+        if (target < 0) {
+            return;
+        }
+        Rule rule = _depends.getLabel(target);
+        for (int i = 0; i < count; i += 1) {
+            rule.addDependency(_depends.getLabel(dependencies[i]));
+        }
+        rule.addCommands(commands);
+    }
+
+    /** Report all circular dependencies in the makefile at once, if there
+     *  are any. */
+    private void checkForCycles() {
+        StronglyConnectedComponents components =
+            new StronglyConnectedComponents(_depends);
+        StringBuilder cycles = new StringBuilder();
+        for (int[] cycle : components.cycles()) {
+            cycles.append(cycles.length() == 0 ? "" : ";");
+            for (int v : cycle) {
+                cycles.append(' ').append(_depends.getLabel(v).getTarget());
             }
-            for (String dependency: dependencies) {
-                Rule depRule = addRule(dependency,
-                                       Collections.<String>emptyList(),
-                                       Collections.<String>emptyList());
-                rule.addDependency(depRule);
+        }
+        if (cycles.length() > 0) {
+            error("Circular dependencies among targets:%s", cycles);
+        }
+    }
+
+    /** Returns the rule for TARGET, creating it if need be.  A new rule
+     *  gets the next id in my target table, which is also its vertex. */
+    Rule rule(String target) {
+        int v = _names.find(target);
+        if (v == 0) {
+            v = _names.add(target);
+            addRules();
+        }
+        return _depends.getLabel(v);
+    }
+
+    /** Create rules for the names added to my target table since the
+     *  last rule was created, in order of their ids. */
+    private void addRules() {
+        for (int v = _depends.vertexSize() + 1; v <= _names.size(); v += 1) {
+            Rule rule = new Rule(this, _names.name(v));
+            if (rule.getVertex() != v) {
+                throw new IllegalStateException("target ids out of step");
             }
-            rule.addCommands(commands);
-            return rule;
-        } else {
-            return null;
         }
     }
 
     /** Issue instructions to build TARGET. */
     void build(String target) {
-        Rule targetRule = addRule(target, Collections.<String>emptyList(),
-                                  Collections.<String>emptyList());
-        int v = targetRule.getVertex();
-        if (_traversal == null) {
-            _traversal = new MakeTraversal();
-            _traversal.traverse(v);
+        int v = rule(target).getVertex();
+        if (_jobs > 1) {
+            new Scheduler(this, _jobs).build(v);
         } else {
-            _traversal.traverse(v);
+            if (_traversal == null) {
+                _traversal = new MakeTraversal();
+            }
+            _traversal.build(v);
+        }
+    }
+
+    /** Build targets with up to JOBS rules running at once.  JOBS must be
+     *  positive. */
+    void setJobs(int jobs) {
+        if (jobs < 1) {
+            error("number of jobs must be positive");
+        }
+        _jobs = jobs;
+    }
+
+    /** Returns true iff other rules may be built while one is. */
+    boolean isParallel() {
+        return _jobs > 1;
+    }
+
+    /** If RUN, run rules' commands with the shell, rather than just
+     *  printing them. */
+    void setRunCommands(boolean run) {
+        _runCommands = run;
+    }
+
+    /** Returns true iff rules' commands are to be run. */
+    boolean runsCommands() {
+        return _runCommands;
+    }
+
+    /** Keep a history of the time taken to build each target in the
+     *  file named FILENAME. */
+    void setHistory(String fileName) {
+        _history = new BuildHistory(fileName);
+    }
+
+    /** Returns true iff I keep a build history. */
+    boolean hasHistory() {
+        return _history != null;
+    }
+
+    /** Write my build history, if any, back to its file. */
+    void saveHistory() {
+        if (_history != null) {
+            _history.save();
+        }
+    }
+
+    /** Keep the state of the targets I build in the file named FILENAME,
+     *  and use the state recorded there by earlier runs.  Must be called
+     *  before readFileAges. */
+    void setState(String fileName) {
+        _state = new BuildState(fileName);
+    }
+
+    /** Finish writing my build state, if any. */
+    void saveState() {
+        if (_state != null) {
+            _state.close();
         }
     }
 
+    /** Decide whether rules are out of date by the contents of their
+     *  files, rather than their ages, iff BYCONTENT.  Requires a build
+     *  state. */
+    void setBuildByContent(boolean byContent) {
+        if (byContent && _state == null) {
+            error("building by content requires a build state");
+        }
+        _byContent = byContent;
+        if (byContent && _hasher == null) {
+            _hasher = new FileHasher(_state);
+        }
+    }
+
+    /** Returns true iff rules are out of date when their files'
+     *  contents, rather than ages, say they are. */
+    boolean buildsByContent() {
+        return _byContent;
+    }
+
+    /** Before running a rule's commands, look for its target in the
+     *  artifact cache in directory DIR, holding at most LIMIT bytes, and
+     *  add the targets built to it.  Requires that commands be run. */
+    void setCache(String dir, long limit) {
+        if (!_runCommands) {
+            error("a build cache requires running commands");
+        }
+        _cache = new ArtifactCache(dir, limit);
+        if (_hasher == null) {
+            _hasher = new FileHasher(_state);
+        }
+    }
+
+    /** Returns my artifact cache, or null if I have none. */
+    ArtifactCache getCache() {
+        return _cache;
+    }
+
+    /** Returns the key for the artifact cache entry for RULE's target,
+     *  fingerprinting its name, its commands, and the contents of its
+     *  dependencies, or null if a dependency has no file. */
+    Long cacheKey(Rule rule) {
+        TreeMap<String, String> inputs = new TreeMap<>();
+        for (int v : _depends.successors(rule.getVertex())) {
+            String dep = _depends.getLabel(v).getTarget();
+            Long hash = _hasher.hash(dep);
+            if (hash == null) {
+                return null;
+            }
+            inputs.put(dep, Long.toHexString(hash));
+        }
+        ArrayList<String> items = new ArrayList<>();
+        items.add(rule.getTarget());
+        items.add(Long.toHexString(rule.commandFingerprint()));
+        for (Map.Entry<String, String> e : inputs.entrySet()) {
+            items.add(e.getKey());
+            items.add(e.getValue());
+        }
+        return BuildState.fingerprint(items);
+    }
+
+    /** Returns a description of how RULE's commands or set of
+     *  dependencies differ from those recorded in my build state when it
+     *  was last built, or null if they do not.  When building by content,
+     *  also describes whether RULE has not been built before, or the
+     *  contents of its dependencies or of its target have changed
+     *  since. */
+    String changeSinceBuilt(Rule rule) {
+        if (_state == null) {
+            return null;
+        }
+        BuildState.Entry entry = _state.get(rule.getTarget());
+        if (entry == null) {
+            return buildsByContent() ? "not built before" : null;
+        } else if (entry.commands() != rule.commandFingerprint()) {
+            return "commands changed";
+        } else if (entry.dependencies() != rule.dependencyFingerprint()) {
+            return "dependencies changed";
+        } else if (!buildsByContent()) {
+            return null;
+        } else if (entry.inputs() != inputFingerprint(rule)) {
+            return "inputs changed";
+        } else if (entry.output() != outputFingerprint(rule)) {
+            return "output changed";
+        }
+        return null;
+    }
+
+    /** Returns a fingerprint of the contents of RULE's dependencies.  A
+     *  dependency with no file is represented by its age. */
+    private long inputFingerprint(Rule rule) {
+        TreeMap<String, String> inputs = new TreeMap<>();
+        for (int v : _depends.successors(rule.getVertex())) {
+            Rule dep = _depends.getLabel(v);
+            Long hash = _hasher.hash(dep.getTarget());
+            inputs.put(dep.getTarget(),
+                       hash != null ? Long.toHexString(hash)
+                       : "@" + dep.getTime());
+        }
+        ArrayList<String> items = new ArrayList<>();
+        for (Map.Entry<String, String> e : inputs.entrySet()) {
+            items.add(e.getKey());
+            items.add(e.getValue());
+        }
+        return BuildState.fingerprint(items);
+    }
+
+    /** Returns true iff RULE's target exists as a file.  Only valid when
+     *  building by content. */
+    boolean hasFile(Rule rule) {
+        return _hasher.hash(rule.getTarget()) != null;
+    }
+
+    /** Returns the content hash of RULE's target file, or 0 if there is
+     *  none. */
+    private long outputFingerprint(Rule rule) {
+        Long hash = _hasher.hash(rule.getTarget());
+        return hash == null ? 0 : hash;
+    }
+
+    /** Record each rule rebuilt in a trace, to be written to the file
+     *  named FILENAME. */
+    void setTrace(String fileName) {
+        _trace = new BuildTrace(fileName);
+    }
+
+    /** Write my build trace, if any, and print a summary of the slowest
+     *  rules in it on the standard error. */
+    void saveTrace() {
+        if (_trace != null) {
+            _trace.save();
+            _trace.summarize(System.err, SLOWEST_RULES);
+        }
+    }
+
+    /** Record in my trace, if any, that RULE was rebuilt, starting at
+     *  START and ending at END (according to System.nanoTime), failing
+     *  iff FAILED. */
+    private void trace(Rule rule, long start, long end, boolean failed) {
+        if (_trace != null && rule.rebuildReason() != null) {
+            _trace.record(rule.getTarget(), start, end, rule.rebuildReason(),
+                          rule.cacheResult(), failed);
+        }
+    }
+
+    /** Returns the expected time in seconds to build the rule at vertex
+     *  V, according to my history, or 1 if I keep none. */
+    double estimate(int v) {
+        if (_history == null) {
+            return 1.0;
+        }
+        return _history.estimate(_depends.getLabel(v).getTarget());
+    }
+
+    /** Bring the rule at vertex V up to date, assuming that its
+     *  dependencies are.  Returns the time in seconds spent running its
+     *  commands (0 if it was already up to date). */
+    double make(int v) {
+        Rule rule = _depends.getLabel(v);
+        long start = System.nanoTime();
+        boolean rebuilt;
+        try {
+            rebuilt = rule.rebuild();
+        } catch (RuntimeException excp) {
+            trace(rule, start, System.nanoTime(), true);
+            throw excp;
+        }
+        long end = System.nanoTime();
+        if (rebuilt) {
+            trace(rule, start, end, false);
+        }
+        double seconds = rebuilt ? (end - start) * 1e-9 : 0.0;
+        if (rebuilt && _history != null) {
+            _history.record(rule.getTarget(), seconds);
+        }
+        if (_state != null && rule.hasCommands()) {
+            boolean byContent = buildsByContent();
+            _state.put(rule.getTarget(),
+                       new BuildState.Entry(rule.getTime(),
+                                            rule.commandFingerprint(),
+                                            rule.dependencyFingerprint(),
+                                            byContent
+                                            ? inputFingerprint(rule) : 0,
+                                            byContent
+                                            ? outputFingerprint(rule) : 0));
+        }
+        advanceTime();
+        return seconds;
+    }
+
     /** Return my dependence graph. */
     final Depends getGraph() {
         return _depends;
     }
 
-    /** Return the initial age of TARGET, if it exists, or null if it
-     *  does not. */
-    final Integer getInitialAge(String target) {
-        return _ages.get(target);
+    /** Return the initial age of the target whose id is V, if it exists,
+     *  or null if it does not.  A target built by an earlier run with my
+     *  build state is as old as the later of its file age and its last
+     *  build. */
+    final Integer getInitialAge(int v) {
+        Integer age = _aged.get(v) ? _ages[v] : null;
+        BuildState.Entry built =
+            _state == null ? null : _state.get(_names.name(v));
+        if (built != null && (age == null || built.time() > age)) {
+            return built.time();
+        }
+        return age;
+    }
+
+    /** Record that the target whose id is V is AGE old. */
+    private void setAge(int v, int age) {
+        if (v >= _ages.length) {
+            _ages = Arrays.copyOf(_ages, Math.max(2 * _ages.length, v + 1));
+        }
+        _ages[v] = age;
+        _aged.set(v);
     }
 
     /** Returns the current time (to be attached to rebuilt targets). */
-    final int getCurrentTime() {
+    final synchronized int getCurrentTime() {
         return _currentTime;
     }
 
+    /** Advance the current time past that of the last rule built. */
+    private synchronized void advanceTime() {
+        _currentTime += 10;
+    }
+
     /** The current time.  Should be no earlier than the time on the
      *  latest file. */
     private int _currentTime;
     /** The makefile dependency graph. */
     private Depends _depends = new Depends();
-    /** Mapping of target names to their ages. */
-    private HashMap<String, Integer> _ages = new HashMap<>();
-    /** Mapping of target names to their Rules. */
-    private HashMap<String, Rule> _targets = new HashMap<>();
+    /** The ids of target names, which are the vertices of their rules. */
+    private TargetTable _names = new TargetTable();
+    /** The age of each target, indexed by id, where recorded in _aged. */
+    private int[] _ages = new int[INITIAL_TARGETS];
+    /** The ids of the targets whose ages are known. */
+    private BitSet _aged = new BitSet();
     /** Depth-first traversal of my vertices. */
     private MakeTraversal _traversal;
+    /** Maximum number of rules to build at once. */
+    private int _jobs = 1;
+    /** True iff commands are run, and not just printed. */
+    private boolean _runCommands;
+    /** State recorded by earlier builds, or null if not kept. */
+    private BuildState _state;
+    /** Compiled form of the makefile, or null. */
+    private MakefileSnapshot _snapshot;
+    /** True iff building by content. */
+    private boolean _byContent;
+    /** Hashes file contents when building by content or caching, or
+     *  null. */
+    private FileHasher _hasher;
+    /** Cache of built targets, or null. */
+    private ArtifactCache _cache;
+    /** Times taken by past builds, or null if not kept. */
+    private BuildHistory _history;
+    /** Trace of this run's builds, or null if not kept. */
+    private BuildTrace _trace;
+
+    /** Number of rules listed in the summary of a build trace. */
+    private static final int SLOWEST_RULES = 10;
+    /** Initial size of arrays indexed by target id. */
+    private static final int INITIAL_TARGETS = 64;
 
     /** Traversal for make dependency graph. */
     class MakeTraversal extends DepthFirstTraversal {
@@ -185,11 +544,20 @@ class Maker {
             super(_depends);
         }
 
+        /** Bring the rule at vertex V and those it depends on up to
+         *  date, except those brought up to date by earlier calls, and
+         *  report the critical path among the rules built. */
+        void build(int v) {
+            _built.clear();
+            _elapsed = new double[_depends.maxVertex() + 1];
+            traverse(v);
+            new CriticalPath(_depends, _built, _elapsed).report();
+        }
+
         @Override
         protected boolean postVisit(int v0) {
-            Rule cur = _depends.getLabel(v0);
-            cur.rebuild();
-            _currentTime += 10;
+            _elapsed[v0] = make(v0);
+            _built.add(v0);
             return true;
         }
         @Override
@@ -200,6 +568,12 @@ class Maker {
         protected boolean reverseSuccessors(int v) {
             return true;
         }
+
+        /** The vertices built by the current call of build, each after
+         *  those it depends on. */
+        private final ArrayList<Integer> _built = new ArrayList<>();
+        /** Time in seconds taken to build each rule. */
+        private double[] _elapsed;
     }
 
 }
@@ -1,7 +1,14 @@
 package make;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.TreeSet;
 
 import static make.Main.error;
 
@@ -16,10 +23,16 @@ class Rule {
         _depends = _maker.getGraph();
         _target = target;
         _vertex = _depends.add(this);
-        _time = _maker.getInitialAge(target);
+        _time = _maker.getInitialAge(_vertex);
         _finished = false;
     }
 
+    /** Reset my target's change time to its initial age, as my maker now
+     *  knows it.  Only valid before I have been brought up to date. */
+    void resetTime() {
+        _time = _maker.getInitialAge(_vertex);
+    }
+
     /** Add the target of DEPENDENT to my dependencies. */
     void addDependency(Rule dependent) {
         _depends.add(this._vertex, dependent._vertex);
@@ -53,6 +66,30 @@ class Rule {
         return _time;
     }
 
+    /** Return my commands. */
+    List<String> getCommands() {
+        return Collections.unmodifiableList(_commands);
+    }
+
+    /** Return true iff I have commands. */
+    boolean hasCommands() {
+        return !_commands.isEmpty();
+    }
+
+    /** Returns a fingerprint of my commands. */
+    long commandFingerprint() {
+        return BuildState.fingerprint(_commands);
+    }
+
+    /** Returns a fingerprint of the set of my dependencies' targets. */
+    long dependencyFingerprint() {
+        TreeSet<String> targets = new TreeSet<>();
+        for (int i: _depends.successors(this._vertex)) {
+            targets.add(_depends.getLabel(i).getTarget());
+        }
+        return BuildState.fingerprint(new ArrayList<>(targets));
+    }
+
     /** Return true iff I have not yet been brought up to date. */
     boolean isUnfinished() {
         return !_finished;
@@ -69,50 +106,153 @@ class Rule {
         }
     }
 
-    /** Return true iff I am out of date and need to be rebuilt (including the
-     *  case where I do not exist).  Assumes that my dependencies are all
-     *  successfully rebuilt. */
-    private boolean outOfDate() {
+    /** Return the reason I am out of date and need to be rebuilt
+     *  (including the case where I do not exist), or null if I am up to
+     *  date.  Assumes that my dependencies are all successfully rebuilt.
+     *  When building by content, my ages are ignored, and only changes in
+     *  contents or commands count. */
+    private String outOfDate() {
+        if (_maker.buildsByContent()) {
+            if (hasCommands()) {
+                return _maker.changeSinceBuilt(this);
+            }
+            return _time == null && !_maker.hasFile(this) ? "missing" : null;
+        }
         if (_time == null) {
-            return true;
+            return "missing";
+        }
+        String change = _maker.changeSinceBuilt(this);
+        if (change != null) {
+            return change;
         }
         for (int i: _depends.successors(this._vertex)) {
             Rule neighbor = _depends.getLabel(i);
             if (this._time < neighbor.getTime()) {
-                return true;
+                return "older than " + neighbor.getTarget();
             }
         }
-        return false;
+        return null;
     }
 
     /** Rebuild me, if needed, after checking that all dependencies are rebuilt
-     *  (error otherwise). */
-    void rebuild() {
+     *  (error otherwise).  Returns true iff I was out of date. */
+    boolean rebuild() {
         checkFinishedDependencies();
 
-        if (outOfDate()) {
+        _reason = outOfDate();
+        boolean rebuilt = _reason != null;
+        if (rebuilt) {
             if (_commands.isEmpty()) {
                 error("Error: %s needs to be rebuilt, but has no commands",
                       _target);
             } else {
-                for (String i: _commands) {
-                    if (i != null) {
-                        execute(i);
+                ArtifactCache cache = _maker.getCache();
+                Long key = cache == null ? null : _maker.cacheKey(this);
+                _cacheResult = key == null ? null : "miss";
+                if (key != null && cache.restore(key, _target)) {
+                    _cacheResult = "hit";
+                    synchronized (System.out) {
+                        System.out.printf("# %s restored from cache%n",
+                                          _target);
+                    }
+                } else {
+                    if (cache != null) {
+                        ArtifactCache.unlink(_target);
+                    }
+                    runCommands();
+                    if (key != null) {
+                        cache.store(key, _target);
                     }
                 }
                 _time = _maker.getCurrentTime() + 10;
             }
         }
         _finished = true;
+        return rebuilt;
     }
 
-    /** Execute command.
-     * @param command command.
-     * */
-    void execute(String command) {
-        System.out.println(command);
+    /** Returns the reason I was last found out of date, or null if I was
+     *  up to date. */
+    String rebuildReason() {
+        return _reason;
     }
 
+    /** Returns "hit" or "miss" according as my target was or was not
+     *  found in the artifact cache when I was last rebuilt, or null if the
+     *  cache was not consulted. */
+    String cacheResult() {
+        return _cacheResult;
+    }
+
+    /** Execute my commands.  When other rules may be running at the same
+     *  time, their output is collected and printed as one block when they
+     *  are done (or fail), so that it is not mixed with that of other
+     *  rules.  Otherwise, it is printed as it is produced. */
+    private void runCommands() {
+        if (!_maker.isParallel()) {
+            for (String i: _commands) {
+                execute(i, System.out);
+            }
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(buffer, true)) {
+            for (String i: _commands) {
+                execute(i, out);
+            }
+        } finally {
+            synchronized (System.out) {
+                System.out.print(buffer);
+                System.out.flush();
+            }
+        }
+    }
+
+    /** Execute COMMAND, echoing it and its output to OUT.  The command is
+     *  only echoed unless my Maker runs commands, in which case it is run
+     *  by the shell, and a nonzero exit status is an error. */
+    void execute(String command, PrintStream out) {
+        out.println(command);
+        if (!_maker.runsCommands()) {
+            return;
+        }
+        Process process;
+        try {
+            process = new ProcessBuilder("sh", "-c", command)
+                .redirectErrorStream(true).start();
+        } catch (IOException excp) {
+            error("Error: could not run command for %s: %s", _target,
+                  excp.getMessage());
+            return;
+        }
+        try {
+            process.getOutputStream().close();
+            InputStream output = process.getInputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int n = output.read(buffer); n >= 0;
+                 n = output.read(buffer)) {
+                out.write(buffer, 0, n);
+                out.flush();
+            }
+            int status = process.waitFor();
+            if (status != 0) {
+                error("Error: command for %s failed with exit status %d",
+                      _target, status);
+            }
+        } catch (IOException excp) {
+            error("Error: lost output of command for %s: %s", _target,
+                  excp.getMessage());
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            error("Error: command for %s interrupted", _target);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /** Size of the buffer for copying command output. */
+    private static final int BUFFER_SIZE = 8192;
+
     /** The Maker that created me. */
     private Maker _maker;
     /** The Maker's dependency graph. */
@@ -127,4 +267,8 @@ class Rule {
     private boolean _finished;
     /** My change time, or null if I don't exist. */
     private Integer _time;
+    /** Why I was last out of date, or null. */
+    private String _reason;
+    /** Result of my last artifact-cache lookup, or null. */
+    private String _cacheResult;
 }
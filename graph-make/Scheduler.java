@@ -0,0 +1,127 @@
+package make;
+
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static make.Main.error;
+
+/** Builds targets with a pool of worker threads.  The calling thread acts
+ *  as coordinator: as each rule finishes, it uses the remaining-dependency
+ *  counts kept by the dependency graph to find the rules that have become
+ *  ready, and it keeps up to JOBS ready rules running.  Only the
+ *  coordinator touches those counts.
+ *
+ *  Ready rules are started in order of the estimated length of the
+ *  longest chain of rules from each to the requested target (its
+ *  "critical path"), so that long chains start early and the pool does
+ *  not sit idle waiting for one at the end.  A rule's cost is estimated
+ *  from the Maker's build history, or is 1 if there is none.  The chain
+ *  that actually took longest is reported on the standard error after
+ *  the build.
+ *
+ *  After a rule fails, no more are started; those already running are
+ *  allowed to finish, and then the first failure is reported.
+ *  @author Yuhan Xie
+ */
+class Scheduler {
+
+    /** A scheduler that builds MAKER's targets with up to JOBS rules at a
+     *  time. */
+    Scheduler(Maker maker, int jobs) {
+        _maker = maker;
+        _depends = maker.getGraph();
+        _jobs = jobs;
+    }
+
+    /** Bring the target at vertex V and everything it depends on up to
+     *  date. */
+    void build(int v) {
+        List<Integer> ready0 = _depends.schedule(v);
+        List<Integer> scheduled = _depends.scheduled();
+        int size = _depends.maxVertex() + 1;
+        double[] cost = new double[size];
+        for (int u : scheduled) {
+            cost[u] = _maker.estimate(u);
+        }
+        CriticalPath rank = new CriticalPath(_depends, scheduled, cost);
+        _elapsed = new double[size];
+
+        ExecutorService pool = Executors.newFixedThreadPool(_jobs);
+        CompletionService<Integer> done =
+            new ExecutorCompletionService<>(pool);
+        PriorityQueue<Integer> ready =
+            new PriorityQueue<>((a, b) -> Double.compare(rank.length(b),
+                                                         rank.length(a)));
+        ready.addAll(ready0);
+        RuntimeException failure;
+        failure = null;
+        int running;
+        running = 0;
+        try {
+            while (true) {
+                while (failure == null && running < _jobs
+                       && !ready.isEmpty()) {
+                    start(done, ready.poll());
+                    running += 1;
+                }
+                if (running == 0) {
+                    break;
+                }
+                int u;
+                try {
+                    u = done.take().get();
+                } catch (ExecutionException excp) {
+                    if (failure == null) {
+                        failure = unwrap(excp.getCause());
+                    }
+                    running -= 1;
+                    continue;
+                }
+                running -= 1;
+                ready.addAll(_depends.finished(u));
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            error("build interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        new CriticalPath(_depends, scheduled, _elapsed).report();
+    }
+
+    /** Submit the rule at vertex V to DONE's pool. */
+    private void start(CompletionService<Integer> done, int v) {
+        done.submit(() -> {
+            _elapsed[v] = _maker.make(v);
+            return v;
+        });
+    }
+
+    /** Returns CAUSE, the exception thrown by a worker, as an unchecked
+     *  exception to be rethrown by the coordinator. */
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /** The Maker whose rules I build. */
+    private final Maker _maker;
+    /** Its dependency graph. */
+    private final Depends _depends;
+    /** Maximum number of rules to build at once. */
+    private final int _jobs;
+    /** Time in seconds taken to build each rule. */
+    private double[] _elapsed;
+}
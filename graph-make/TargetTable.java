@@ -0,0 +1,131 @@
+package make;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/** A table of target names, each with a dense id: 1, 2, ..., in order of
+ *  addition.  Maker makes a rule for each name as soon as it is added, so
+ *  each id is also the vertex of that rule in the dependence graph, and
+ *  indexes arrays of per-target data directly.  Names may be looked up
+ *  either as Strings or as their encodings in the default character set,
+ *  so that MakefileLexer can intern them straight from the bytes of a
+ *  makefile, decoding each distinct name only once.  Names are kept in an
+ *  open-addressed hash table of ids, hashed by the FNV-1a hash of their
+ *  encodings.
+ *  @author Yuhan Xie
+ */
+class TargetTable {
+
+    /** Returns the id of NAME, or 0 if it has none. */
+    int find(String name) {
+        byte[] b = name.getBytes(_charset);
+        return _slots[slot(b, 0, b.length, hash(b, 0, b.length))];
+    }
+
+    /** Give NAME, which must not yet have one, the next id, and return
+     *  it. */
+    int add(String name) {
+        byte[] b = name.getBytes(_charset);
+        int h = hash(b, 0, b.length);
+        return add(name, b, h, slot(b, 0, b.length, h));
+    }
+
+    /** Returns the id of the name encoded in TEXT[FROM .. TO - 1], giving
+     *  it the next id if it has none. */
+    int intern(byte[] text, int from, int to) {
+        int h = hash(text, from, to);
+        int s = slot(text, from, to, h);
+        if (_slots[s] != 0) {
+            return _slots[s];
+        }
+        return add(new String(text, from, to - from, _charset),
+                   Arrays.copyOfRange(text, from, to), h, s);
+    }
+
+    /** Returns the name whose id is ID. */
+    String name(int id) {
+        return _names[id];
+    }
+
+    /** Returns the number of names, which is also the largest id. */
+    int size() {
+        return _size;
+    }
+
+    /** Give NAME, whose encoding is BYTES, with hash H, the next id,
+     *  storing it in slot S, and return the id. */
+    private int add(String name, byte[] bytes, int h, int s) {
+        int id = _size + 1;
+        if (id == _names.length) {
+            _names = Arrays.copyOf(_names, 2 * id);
+            _bytes = Arrays.copyOf(_bytes, 2 * id);
+            _hashes = Arrays.copyOf(_hashes, 2 * id);
+        }
+        _names[id] = name;
+        _bytes[id] = bytes;
+        _hashes[id] = h;
+        _slots[s] = id;
+        _size = id;
+        if (2 * _size > _slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /** Returns the slot holding the id of the name encoded in
+     *  TEXT[FROM .. TO - 1], whose hash is H, or the empty slot where it
+     *  belongs if it has none. */
+    private int slot(byte[] text, int from, int to, int h) {
+        int mask = _slots.length - 1;
+        for (int s = h & mask;; s = (s + 1) & mask) {
+            int id = _slots[s];
+            if (id == 0 || _hashes[id] == h
+                && Arrays.equals(text, from, to, _bytes[id], 0,
+                                 _bytes[id].length)) {
+                return s;
+            }
+        }
+    }
+
+    /** Double the size of the hash table. */
+    private void rehash() {
+        _slots = new int[2 * _slots.length];
+        int mask = _slots.length - 1;
+        for (int id = 1; id <= _size; id += 1) {
+            int s = _hashes[id] & mask;
+            while (_slots[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            _slots[s] = id;
+        }
+    }
+
+    /** Returns the 32-bit FNV-1a hash of TEXT[FROM .. TO - 1]. */
+    private static int hash(byte[] text, int from, int to) {
+        int h = FNV_OFFSET;
+        for (int i = from; i < to; i += 1) {
+            h = (h ^ text[i]) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /** Initial number of slots.  A power of 2. */
+    private static final int INITIAL_SLOTS = 64;
+    /** Parameters of the 32-bit FNV-1a hash. */
+    private static final int
+        FNV_OFFSET = 0x811c9dc5,
+        FNV_PRIME = 0x01000193;
+
+    /** Encoding of names. */
+    private final Charset _charset = Charset.defaultCharset();
+    /** The name of each id, with _names[0] unused. */
+    private String[] _names = new String[INITIAL_SLOTS / 2];
+    /** The encoding of each id's name. */
+    private byte[][] _bytes = new byte[INITIAL_SLOTS / 2][];
+    /** The hash of each id's name. */
+    private int[] _hashes = new int[INITIAL_SLOTS / 2];
+    /** Number of names. */
+    private int _size;
+    /** Hash table of ids, with 0 marking an empty slot. */
+    private int[] _slots = new int[INITIAL_SLOTS];
+}
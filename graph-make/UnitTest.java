@@ -9,6 +9,22 @@ import org.junit.Test;
 import ucb.junit.textui;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /** Unit tests for the make package. */
 public class UnitTest {
 
@@ -22,6 +38,585 @@ public class UnitTest {
 
     }
 
+    /** Returns the name of a temporary file containing LINES. */
+    static String tempFile(String... lines) throws IOException {
+        File file = File.createTempFile("make", ".mk");
+        file.deleteOnExit();
+        try (FileWriter out = new FileWriter(file)) {
+            for (String line : lines) {
+                out.write(line + "\n");
+            }
+        }
+        return file.getPath();
+    }
+
+    @Test
+    public void cyclesReported() throws IOException {
+        Maker maker = new Maker();
+        try {
+            maker.readMakefile(tempFile("A: B", " cmd", "B: C", " cmd",
+                                        "C: A", " cmd", "D: D E", " cmd"));
+            fail("cycle not detected");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("Circular dependencies among targets: A B C; D",
+                         excp.getMessage());
+        }
+    }
+
+    /** Returns the lines printed to the standard output by running make
+     *  on MAKEFILE with FILEINFO to build TARGET, after passing the Maker
+     *  to SETUP to set its options, discarding its standard error.  Saves
+     *  the Maker's build state, if it has one, afterwards. */
+    static List<String> makeOutput(String makefile, String fileInfo,
+                                   String target, Consumer<Maker> setup) {
+        PrintStream stdout = System.out, stderr = System.err;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        System.setErr(new PrintStream(new ByteArrayOutputStream(), true));
+        try {
+            Maker maker = new Maker();
+            setup.accept(maker);
+            maker.readFileAges(fileInfo);
+            maker.readMakefile(makefile);
+            maker.build(target);
+            maker.saveState();
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        String text = bytes.toString().trim();
+        return text.isEmpty() ? Arrays.<String>asList()
+            : Arrays.asList(text.split("\\s*\n\\s*"));
+    }
+
+    @Test
+    public void parallelBuild() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("all: " + String.join(" ", leaves(20, "m")));
+        lines.add(" link all");
+        for (String mid : leaves(20, "m")) {
+            lines.add(mid + ": " + String.join(" ", leaves(5, mid + "x")));
+            lines.add(" build " + mid);
+            for (String leaf : leaves(5, mid + "x")) {
+                lines.add(leaf + ":");
+                lines.add(" build " + leaf);
+            }
+        }
+        String makefile = tempFile(lines.toArray(new String[0]));
+        String fileInfo = tempFile("100", "m3x2 50");
+        List<String> output = makeOutput(makefile, fileInfo, "all",
+                                         m -> m.setJobs(8));
+        assertEquals(20 * 6, output.size());
+        assertEquals("link all", output.get(output.size() - 1));
+        for (String mid : leaves(20, "m")) {
+            int pos = output.indexOf("build " + mid);
+            assertTrue(pos >= 0);
+            for (String leaf : leaves(5, mid + "x")) {
+                int leafPos = output.indexOf("build " + leaf);
+                assertEquals(leaf.equals("m3x2"), leafPos < 0);
+                assertTrue(leafPos < pos);
+            }
+        }
+    }
+
+    @Test
+    public void parallelBuildFailure() throws IOException {
+        String makefile = tempFile("A: B C", " cmd A", "B:", "C:", " cmd C");
+        String fileInfo = tempFile("100");
+        try {
+            makeOutput(makefile, fileInfo, "A", m -> m.setJobs(4));
+            fail("missing commands not reported");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("Error: B needs to be rebuilt, but has no commands",
+                         excp.getMessage());
+        }
+    }
+
+    @Test
+    public void criticalPathFirst() throws IOException {
+        String makefile =
+            tempFile("all: b c a d", " link", "a: a1", " build a",
+                     "a1: a2", " build a1", "a2:", " build a2",
+                     "b:", " build b", "c:", " build c", "d:", " build d");
+        String fileInfo = tempFile("100");
+        String history = tempFile("a 5", "a1 5", "a2 5", "b 1", "c 1");
+        Maker maker = new Maker();
+        maker.setHistory(history);
+        maker.readFileAges(fileInfo);
+        maker.readMakefile(makefile);
+        Depends depends = maker.getGraph();
+        int all;
+        all = 0;
+        for (int v : depends.vertices()) {
+            if (depends.getLabel(v).getTarget().equals("all")) {
+                all = v;
+            }
+        }
+        PrintStream stdout = System.out, stderr = System.err;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(),
+            err = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true));
+        System.setErr(new PrintStream(err, true));
+        try {
+            new Scheduler(maker, 1).build(all);
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        List<String> lines =
+            Arrays.asList(out.toString().trim().split("\\s*\n\\s*"));
+        assertEquals(Arrays.asList("build a2", "build a1", "build a"),
+                     lines.subList(0, 3));
+        assertEquals("link", lines.get(lines.size() - 1));
+        assertTrue(err.toString().startsWith("make: critical path"));
+
+        maker.saveHistory();
+        BuildHistory saved = new BuildHistory(history);
+        assertTrue(saved.estimate("a") < 5);
+        assertTrue(saved.estimate("all") < 1);
+    }
+
+    @Test
+    public void criticalPathSequential() throws IOException {
+        PrintStream stdout = System.out, stderr = System.err;
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true));
+        System.setErr(new PrintStream(err, true));
+        try {
+            Maker maker = new Maker();
+            maker.readFileAges(tempFile("100"));
+            maker.readMakefile(tempFile("all: a b", " link", "a: a1",
+                                        " build a", "a1:", " build a1",
+                                        "b:", " build b"));
+            maker.build("all");
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        assertTrue(err.toString()
+                   .matches("make: critical path \\([0-9.]+ s\\): "
+                            + "a1 -> a -> all\\s*"));
+    }
+
+    /** Returns a setup for makeOutput that runs commands with up to JOBS
+     *  at once. */
+    static Consumer<Maker> running(int jobs) {
+        return m -> {
+            m.setJobs(jobs);
+            m.setRunCommands(true);
+        };
+    }
+
+    @Test
+    public void runCommands() throws IOException {
+        String makefile =
+            tempFile("A: B C", " echo made A", "B:", " echo made B; echo B2",
+                     "C:", " echo made C");
+        String fileInfo = tempFile("100");
+        for (int jobs = 1; jobs <= 3; jobs += 2) {
+            List<String> output =
+                makeOutput(makefile, fileInfo, "A", running(jobs));
+            assertEquals(7, output.size());
+            int b = output.indexOf("echo made B; echo B2");
+            assertEquals(Arrays.asList("made B", "B2"),
+                         output.subList(b + 1, b + 3));
+            int c = output.indexOf("echo made C");
+            assertEquals("made C", output.get(c + 1));
+            assertEquals(Arrays.asList("echo made A", "made A"),
+                         output.subList(5, 7));
+        }
+    }
+
+    @Test
+    public void failedCommandStopsDependents() throws IOException {
+        File marker = File.createTempFile("make", ".out");
+        marker.delete();
+        String makefile =
+            tempFile("A: B", " touch " + marker.getPath(), "B:",
+                     " echo failing; exit 3");
+        String fileInfo = tempFile("100");
+        for (int jobs = 1; jobs <= 3; jobs += 2) {
+            try {
+                makeOutput(makefile, fileInfo, "A", running(jobs));
+                fail("failed command not reported");
+            } catch (IllegalArgumentException excp) {
+                assertEquals("Error: command for B failed with exit status 3",
+                             excp.getMessage());
+            }
+            assertFalse(marker.exists());
+        }
+    }
+
+    @Test
+    public void buildState() throws IOException {
+        String fileInfo = tempFile("100", "c.c 50");
+        File state = File.createTempFile("make", ".state");
+        state.delete();
+        state.deleteOnExit();
+        Consumer<Maker> withState = m -> m.setState(state.getPath());
+        String makefile =
+            tempFile("a: b", " link a", "b: c.c", " compile b");
+        assertEquals(Arrays.asList("compile b", "link a"),
+                     makeOutput(makefile, fileInfo, "a", withState));
+        assertEquals(Arrays.asList(),
+                     makeOutput(makefile, fileInfo, "a", withState));
+
+        String changed =
+            tempFile("a: b", " link a", "b: c.c", " compile -O b");
+        assertEquals(Arrays.asList("compile -O b", "link a"),
+                     makeOutput(changed, fileInfo, "a", withState));
+        String newer = tempFile("1000", "c.c 900");
+        assertEquals(Arrays.asList("compile -O b", "link a"),
+                     makeOutput(changed, newer, "a", withState));
+
+        try (FileWriter out = new FileWriter(state, true)) {
+            out.write("\0\0\0\20torn");
+        }
+        assertEquals(Arrays.asList(),
+                     makeOutput(changed, newer, "a", withState));
+        assertEquals(Arrays.asList(),
+                     makeOutput(changed, newer, "a", withState));
+    }
+
+    @Test
+    public void buildByContent() throws IOException {
+        File dir = Files.createTempDirectory("make").toFile();
+        String in = new File(dir, "in").getPath(),
+            mid = new File(dir, "mid").getPath(),
+            out = new File(dir, "out").getPath(),
+            state = new File(dir, "state").getPath();
+        String cut = "cut -c1-3 " + in + " > " + mid,
+            copy = "cp " + mid + " " + out;
+        String makefile =
+            tempFile(out + ": " + mid, " " + copy, mid + ": " + in,
+                     " " + cut);
+        String noAges = tempFile("100");
+        Consumer<Maker> byContent = m -> {
+            m.setState(state);
+            m.setBuildByContent(true);
+            m.setRunCommands(true);
+        };
+        Files.write(Paths.get(in), "hello\n".getBytes());
+        try {
+            assertEquals(Arrays.asList(cut, copy),
+                         makeOutput(makefile, noAges, out, byContent));
+            assertEquals(Arrays.asList(),
+                         makeOutput(makefile, noAges, out, byContent));
+            Files.write(Paths.get(in), "hello\n".getBytes());
+            assertEquals(Arrays.asList(),
+                         makeOutput(makefile, noAges, out, byContent));
+            Files.write(Paths.get(in), "help\n".getBytes());
+            assertEquals(Arrays.asList(cut),
+                         makeOutput(makefile, noAges, out, byContent));
+            Files.write(Paths.get(in), "world\n".getBytes());
+            assertEquals(Arrays.asList(cut, copy),
+                         makeOutput(makefile, noAges, out, byContent));
+            Files.write(Paths.get(out), "junk\n".getBytes());
+            assertEquals(Arrays.asList(copy),
+                         makeOutput(makefile, noAges, out, byContent));
+            assertEquals("wor\n", new String(Files.readAllBytes(
+                Paths.get(out))));
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void artifactCache() throws IOException {
+        File dir = Files.createTempDirectory("make").toFile();
+        File cacheDir = new File(dir, "cache");
+        Path in = Paths.get(dir.getPath(), "in"),
+            out = Paths.get(dir.getPath(), "out");
+        String copy = "cp " + in + " " + out;
+        String makefile = tempFile(out + ": " + in, " " + copy);
+        String hit = "# " + out + " restored from cache";
+        String fileInfo = tempFile("100", in + " 50");
+        String cache = cacheDir.getPath(), target = out.toString();
+        Consumer<Maker> cached = m -> {
+            m.setRunCommands(true);
+            m.setCache(cache, 1000);
+        };
+        Consumer<Maker> cachedSmall = m -> {
+            m.setRunCommands(true);
+            m.setCache(cache, 10);
+        };
+        try {
+            Files.write(in, "one\n".getBytes());
+            assertEquals(Arrays.asList(copy),
+                         makeOutput(makefile, fileInfo, target, cached));
+            Files.delete(out);
+            assertEquals(Arrays.asList(hit),
+                         makeOutput(makefile, fileInfo, target, cached));
+            assertEquals("one\n", new String(Files.readAllBytes(out)));
+
+            Files.write(in, "two\n".getBytes());
+            assertEquals(Arrays.asList(copy),
+                         makeOutput(makefile, fileInfo, target, cached));
+            Files.write(in, "one\n".getBytes());
+            assertEquals(Arrays.asList(hit),
+                         makeOutput(makefile, fileInfo, target, cached));
+            assertEquals("one\n", new String(Files.readAllBytes(out)));
+            Files.write(in, "two\n".getBytes());
+            assertEquals(Arrays.asList(hit),
+                         makeOutput(makefile, fileInfo, target, cached));
+            assertEquals("two\n", new String(Files.readAllBytes(out)));
+
+            Files.write(in, "three\n".getBytes());
+            assertEquals(Arrays.asList(copy),
+                         makeOutput(makefile, fileInfo, target, cachedSmall));
+            assertEquals(1, cacheDir.list().length);
+        } finally {
+            for (File f : cacheDir.listFiles()) {
+                f.delete();
+            }
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void makefileSnapshot() throws IOException {
+        File snapshot = File.createTempFile("make", ".snap");
+        snapshot.delete();
+        snapshot.deleteOnExit();
+        String fileInfo = tempFile("100", "d.c 50", "e.c 50", "b 60");
+        Consumer<Maker> withSnapshot = m -> m.setSnapshot(snapshot.getPath());
+        String makefile =
+            tempFile("# comment", "a: b c", " link a", "", "b: d.c",
+                     " compile b", "c: d.c e.c", " compile c", " strip c",
+                     "a: f", "f:", " gen f  ");
+        List<String> expected = makeOutput(makefile, fileInfo, "a", m -> { });
+        assertEquals(expected,
+                     makeOutput(makefile, fileInfo, "a", withSnapshot));
+        assertTrue(snapshot.exists());
+
+        Maker maker = new Maker();
+        maker.readFileAges(fileInfo);
+        assertTrue(new MakefileSnapshot(snapshot.getPath())
+                   .load(maker, MakefileSnapshot.makefileHash(makefile)));
+        assertEquals(expected,
+                     makeOutput(makefile, fileInfo, "a", withSnapshot));
+
+        try (FileWriter out = new FileWriter(makefile, true)) {
+            out.write("e.c:\n touch e.c\n");
+        }
+        maker = new Maker();
+        maker.readFileAges(fileInfo);
+        assertFalse(new MakefileSnapshot(snapshot.getPath())
+                    .load(maker, MakefileSnapshot.makefileHash(makefile)));
+        assertEquals(makeOutput(makefile, fileInfo, "a", m -> { }),
+                     makeOutput(makefile, fileInfo, "a", withSnapshot));
+    }
+
+    @Test
+    public void lexerMatchesPatterns() {
+        Pattern ignored = Pattern.compile("\\s*(#.*)?");
+        Pattern header = Pattern.compile("([^:\\s]+)\\s*:\\s*(.*?)\\s*");
+        Pattern valid = Pattern.compile("[^:=#\\\\]*");
+        Pattern command = Pattern.compile("\\s+.*");
+        String alphabet = "ab :=#\\\t\f\u000b";
+        Random random = new Random(61);
+        for (int trial = 0; trial < 20000; trial += 1) {
+            StringBuilder line = new StringBuilder();
+            for (int n = random.nextInt(8); n > 0; n -= 1) {
+                int k = random.nextInt(alphabet.length());
+                line.append(alphabet.charAt(k));
+            }
+            String text = line.toString();
+            TargetTable names = new TargetTable();
+            MakefileLexer lexer = new MakefileLexer(text.getBytes(), names);
+            int kind = lexer.next();
+            Matcher parsed = header.matcher(text);
+            if (ignored.matcher(text).matches()) {
+                assertEquals(text, MakefileLexer.END, kind);
+            } else if (parsed.matches()) {
+                assertEquals(text, MakefileLexer.HEADER, kind);
+                String target = names.name(lexer.target());
+                assertEquals(text, parsed.group(1), target);
+                assertEquals(text, !valid.matcher(target).matches(),
+                             lexer.badTarget());
+                assertEquals(text, parsed.group(2), lexer.prerequisiteText());
+                boolean bad = !valid.matcher(parsed.group(2)).matches();
+                assertEquals(text, bad, lexer.badPrerequisites());
+                if (!bad) {
+                    ArrayList<String> deps = new ArrayList<>();
+                    for (int i = 0; i < lexer.prerequisiteCount(); i += 1) {
+                        deps.add(names.name(lexer.prerequisite(i)));
+                    }
+                    List<String> expected =
+                        parsed.group(2).isEmpty() ? Arrays.asList()
+                        : Arrays.asList(parsed.group(2).split("\\p{Blank}+"));
+                    assertEquals(text, expected, deps);
+                }
+            } else if (command.matcher(text).matches()) {
+                assertEquals(text, MakefileLexer.COMMAND, kind);
+                assertEquals(text, text, lexer.line());
+            } else {
+                assertEquals(text, MakefileLexer.ERRONEOUS, kind);
+                assertEquals(text, text, lexer.line());
+            }
+        }
+    }
+
+    @Test
+    public void lexerLinesAndIds() {
+        TargetTable names = new TargetTable();
+        assertEquals(1, names.add("b"));
+        MakefileLexer lexer = new MakefileLexer(
+            "# c\r\na: b c\r cmd 1\n\nb:a  b\n\tcmd 2".getBytes(), names);
+        assertEquals(MakefileLexer.HEADER, lexer.next());
+        assertEquals(2, lexer.target());
+        assertEquals(2, lexer.prerequisiteCount());
+        assertEquals(1, lexer.prerequisite(0));
+        assertEquals(3, lexer.prerequisite(1));
+        assertEquals(MakefileLexer.COMMAND, lexer.next());
+        assertEquals(" cmd 1", lexer.line());
+        assertEquals(MakefileLexer.HEADER, lexer.next());
+        assertEquals(1, lexer.target());
+        assertEquals(2, lexer.prerequisite(0));
+        assertEquals(1, lexer.prerequisite(1));
+        assertEquals(MakefileLexer.COMMAND, lexer.next());
+        assertEquals("\tcmd 2", lexer.line());
+        assertEquals(MakefileLexer.END, lexer.next());
+        assertEquals(3, names.size());
+        assertEquals("c", names.name(3));
+        assertEquals(3, names.find("c"));
+        assertEquals(0, names.find("d"));
+    }
+
+    @Test
+    public void makefileErrors() throws IOException {
+        String[][] cases = {
+            { "Bad target: 'a=b'", "a=b: c" },
+            { "One or more bad prerequisites: 'c : d'", "a:  c : d  " },
+            { "Erroneous input line: ' cmd'", "# x", " cmd" },
+            { "Erroneous input line: 'a b: c'", "a: b", "a b: c" },
+        };
+        for (String[] c : cases) {
+            try {
+                new Maker().readMakefile(
+                    tempFile(Arrays.copyOfRange(c, 1, c.length)));
+                fail("no error for " + c[0]);
+            } catch (IllegalArgumentException excp) {
+                assertEquals(c[0], excp.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void targetTable() {
+        TargetTable table = new TargetTable();
+        List<String> names = leaves(1000, "t");
+        for (String name : names) {
+            assertEquals(0, table.find(name));
+            assertEquals(table.size() + 1, table.add(name));
+        }
+        assertEquals(1000, table.size());
+        for (int id = 1; id <= 1000; id += 1) {
+            assertEquals(id, table.find(new String(names.get(id - 1))));
+            assertEquals(names.get(id - 1), table.name(id));
+        }
+        assertEquals(0, table.find("u0"));
+    }
+
+    @Test
+    public void targetIdsAreVertices() throws IOException {
+        Maker maker = new Maker();
+        maker.readFileAges(tempFile("100", "c 50", "a 70"));
+        maker.readMakefile(tempFile("a: b c", " cmd a", "b: c", " cmd b"));
+        Depends depends = maker.getGraph();
+        assertEquals(3, depends.maxVertex());
+        for (String name : Arrays.asList("a", "b", "c")) {
+            Rule rule = maker.rule(name);
+            assertEquals(rule, depends.getLabel(rule.getVertex()));
+            assertEquals(name, rule.getTarget());
+        }
+        assertEquals(1, maker.rule("c").getVertex());
+        assertEquals(Integer.valueOf(50), maker.rule("c").getTime());
+        assertEquals(Integer.valueOf(70), maker.rule("a").getTime());
+        assertNull(maker.rule("b").getTime());
+        assertEquals(4, maker.rule("d").getVertex());
+    }
+
+    @Test
+    public void buildTrace() throws IOException {
+        File trace = File.createTempFile("make", ".json");
+        trace.deleteOnExit();
+        PrintStream stdout = System.out, stderr = System.err;
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true));
+        System.setErr(new PrintStream(summary, true));
+        try {
+            Maker maker = new Maker();
+            maker.setJobs(2);
+            maker.setTrace(trace.getPath());
+            maker.readFileAges(tempFile("100", "c 50", "a 70"));
+            maker.readMakefile(tempFile("a: b c", " cmd a", "b: c",
+                                        " cmd b", "c:", " cmd c"));
+            maker.build("a");
+            maker.saveTrace();
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        String json = new String(Files.readAllBytes(trace.toPath()));
+        assertTrue(json.startsWith("{\"displayTimeUnit\": \"ms\", "
+                                   + "\"traceEvents\": ["));
+        assertTrue(json.contains("\"name\": \"thread_name\""));
+        assertTrue(json.contains("\"name\": \"b\", \"cat\": \"rule\", "
+                                 + "\"ph\": \"X\""));
+        assertTrue(json.contains("\"args\": {\"reason\": \"missing\"}"));
+        assertTrue(json.contains("\"args\": {\"reason\": "
+                                 + "\"older than b\"}"));
+        assertFalse(json.contains("\"name\": \"c\""));
+        List<String> lines = Arrays.asList(summary.toString().split("\n"));
+        assertTrue(lines.get(0).startsWith("make: critical path"));
+        assertEquals("make: slowest rules:", lines.get(1));
+        assertEquals(4, lines.size());
+        assertEquals("\"a\\\"b\\\\\\u0009\"", BuildTrace.quote("a\"b\\\t"));
+    }
+
+    @Test
+    public void buildTraceRecordsFailure() throws IOException {
+        File trace = File.createTempFile("make", ".json");
+        trace.deleteOnExit();
+        PrintStream stdout = System.out, stderr = System.err;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true));
+        System.setErr(new PrintStream(new ByteArrayOutputStream(), true));
+        Maker maker = new Maker();
+        try {
+            maker.setRunCommands(true);
+            maker.setTrace(trace.getPath());
+            maker.readFileAges(tempFile("100"));
+            maker.readMakefile(tempFile("a: b", " true", "b:", " false"));
+            maker.build("a");
+            fail("failing command not reported");
+        } catch (IllegalArgumentException excp) {
+            maker.saveTrace();
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        String json = new String(Files.readAllBytes(trace.toPath()));
+        assertTrue(json.contains("\"args\": {\"reason\": \"missing\", "
+                                 + "\"failed\": true}"));
+        assertFalse(json.contains("\"name\": \"a\""));
+    }
+
+    /** Returns the names PREFIX0, PREFIX1, ..., PREFIX(N-1). */
+    private static List<String> leaves(int n, String prefix) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < n; i += 1) {
+            result.add(prefix + i);
+        }
+        return result;
+    }
+
     public static void printGraph(Depends d) {
         for (int[] e : d.edges()) {
             System.out.println(e[0]);
@@ -19,17 +19,20 @@ public final class Main {
 
     /** Entry point for the CS61B trip program.  RAWARGS may contain options
      *  and targets:
-     *      [ -m MAP ] [ -o OUT ] [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] [ -k K ] [ -t TIME ] [ REQUEST ]
      *  where MAP (default Map) contains the map data, OUT (default standard
-     *  output) takes the result, and REQUEST (default standard input) contains
-     *  the locations along the requested trip.
+     *  output) takes the result, K (default 1) is the number of alternative
+     *  routes to report for each leg, TIME (default 0) is the starting time
+     *  for maps with travel-time profiles, and REQUEST (default standard
+     *  input) contains the locations along the requested trip.
      */
     public static void main(String... rawArgs) {
         String mapFileName;
         String outFileName;
         List<String> targets;
         CommandArgs args =
-            new CommandArgs("-m={0,1} -o={0,1} --={2,}", rawArgs);
+            new CommandArgs("-m={0,1} -o={0,1} -k={0,1} -t={0,1} --={2,}",
+                            rawArgs);
 
         if (!args.ok()) {
             usage();
@@ -38,6 +41,17 @@ public final class Main {
         mapFileName = args.getFirst("-m", "Map");
         outFileName = args.getFirst("-o");
         targets = args.get("--");
+        int routes = 1;
+        double depart = 0.0;
+        try {
+            routes = Integer.parseInt(args.getFirst("-k", "1"));
+            depart = Double.parseDouble(args.getFirst("-t", "0"));
+        } catch (NumberFormatException excp) {
+            usage();
+        }
+        if (routes < 1) {
+            usage();
+        }
 
         setFiles(outFileName);
 
@@ -45,7 +59,8 @@ public final class Main {
 
         try {
             trip.readMap(mapFileName);
-            trip.makeTrip(targets);
+            trip.setDeparture(depart);
+            trip.makeTrip(targets, routes);
         } catch (IllegalArgumentException excp) {
             System.err.printf("trip: %s%n", excp.getMessage());
             System.exit(1);
@@ -79,7 +94,7 @@ public final class Main {
     /** Print a brief usage message and exit program abnormally. */
     private static void usage() {
         System.err.printf("Usage: java trip.Main [ -m MAPFILE ] [ -o OUTFILE ]"
-                          + " [ REQUESTFILE ]%n");
+                          + " [ -k ROUTES ] [ -t TIME ] [ REQUESTFILE ]%n");
         System.exit(1);
     }
 
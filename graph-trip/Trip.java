@@ -1,12 +1,16 @@
 package trip;
 
-import graph.DirectedGraph;
+import graph.KShortestPaths;
 import graph.LabeledGraph;
-import graph.SimpleShortestPaths;
+import graph.PackedPath;
+import graph.WeightedDirectedGraph;
+import graph.WeightedShortestPaths;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -36,6 +40,16 @@ class Trip {
                     addRoad(inp.next(), inp.next(), inp.nextDouble(),
                             Direction.parse(inp.next()), inp.next());
                     break;
+                case "T":
+                    addPenalty(inp.next(), inp.next(), inp.next(),
+                               inp.nextDouble(), n);
+                    break;
+                case "X":
+                    _prohibited.add(turn(inp.next(), inp.next(), inp.next()));
+                    break;
+                case "P":
+                    addProfile(inp.next(), inp.next(), inp);
+                    break;
                 default:
                     error("map entry #%d: unknown type", n);
                     break;
@@ -50,33 +64,106 @@ class Trip {
         } catch (FileNotFoundException excp) {
             error("no such file");
         }
+        if (!_penalties.isEmpty() || !_prohibited.isEmpty()
+            || !_profiles.isEmpty()) {
+            _network = new TurnNetwork(_map, _penalties, _prohibited,
+                                       _profiles);
+        }
+    }
 
+    /** Set the time at which trips start to DEPART.  This matters only for
+     *  maps with travel-time profiles. */
+    void setDeparture(double depart) {
+        _depart = depart;
     }
 
     /** Produce a report on the standard output of a shortest journey from
      *  DESTS.get(0), then DESTS.get(1), .... */
     void makeTrip(List<String> dests) {
-        if (dests.size() < 2) {
-            error("must have at least two locations for a trip");
-        }
+        checkTrip(dests);
 
         System.out.printf("From %s:%n%n", dests.get(0));
         int step;
 
         step = 1;
         for (int i = 1; i < dests.size(); i += 1) {
-            Integer
-                from = _sites.get(dests.get(i - 1)),
-                to = _sites.get(dests.get(i));
-            if (from == null) {
-                error("No location named %s", dests.get(i - 1));
-            } else if (to == null) {
-                error("No location named %s", dests.get(i));
-            }
+            int from = destination(dests.get(i - 1)),
+                to = destination(dests.get(i));
+            step = reportSegment(step, from, plan(from, to));
+        }
+    }
+
+    /** Check that DESTS names enough locations to make a trip. */
+    private static void checkTrip(List<String> dests) {
+        if (dests.size() < 2) {
+            error("must have at least two locations for a trip");
+        }
+    }
+
+    /** Returns the vertex of the location named NAME in a trip request,
+     *  which must exist. */
+    private int destination(String name) {
+        Integer v = _sites.get(name);
+        if (v == null) {
+            error("No location named %s", name);
+        }
+        return v;
+    }
+
+    /** Returns the locations along a best route from location FROM to
+     *  location TO.  For maps with turn restrictions or travel-time
+     *  profiles, the route starts at the time the last one ended. */
+    private PackedPath plan(int from, int to) {
+        PackedPath route;
+        if (_network == null) {
             TripPlan plan = new TripPlan(from, to);
             plan.setPaths();
-            List<Integer> segment = plan.pathTo(to);
-            step = reportSegment(step, from, segment);
+            route = plan.pathTo(to, _route);
+        } else {
+            route = _network.route(from, to, _depart);
+        }
+        if (route == null) {
+            error("No route from %s to %s", _map.getLabel(from),
+                  _map.getLabel(to));
+        }
+        if (_network != null) {
+            _depart = _network.arrival();
+        }
+        return route;
+    }
+
+    /** Produce a report on the standard output of up to K shortest
+     *  routes, with their lengths, for each leg of the journey from
+     *  DESTS.get(0), then DESTS.get(1), ....  If K is 1, the report is as
+     *  for makeTrip(DESTS). */
+    void makeTrip(List<String> dests, int k) {
+        if (k == 1) {
+            makeTrip(dests);
+            return;
+        }
+        checkTrip(dests);
+        for (int i = 1; i < dests.size(); i += 1) {
+            int from = destination(dests.get(i - 1)),
+                to = destination(dests.get(i));
+            System.out.printf("From %s to %s:%n%n", dests.get(i - 1),
+                              dests.get(i));
+            List<PackedPath> routes;
+            if (_network == null) {
+                TripRoutes paths = new TripRoutes(from, to, k);
+                paths.setPaths();
+                routes = new ArrayList<>();
+                for (int r = 0; r < paths.size(); r += 1) {
+                    routes.add(new PackedPath(paths.pathTo(r)));
+                }
+            } else {
+                routes = _network.routes(from, to, _depart, k);
+            }
+            for (int r = 0; r < routes.size(); r += 1) {
+                System.out.printf("Route %d (%s miles):%n", r + 1,
+                                  round(length(routes.get(r))));
+                reportSegment(1, from, routes.get(r));
+                System.out.println();
+            }
         }
     }
 
@@ -94,14 +181,15 @@ class Trip {
      *      5. Take I-80 west for 8.4 miles to San_Francisco.
      *  Adjacent roads with the same name and direction are combined.
      *  */
-    int reportSegment(int seq, int from, List<Integer> segment) {
-        Road first = _map.getLabel(from, segment.get(1));
+    int reportSegment(int seq, int from, PackedPath segment) {
+        Road first = _map.getLabel(from, segment.vertex(1));
         String prevName = first.toString();
         Direction prevDir = first.direction();
         double prevLength = first.length();
 
         for (int i = 1; i < segment.size() - 1; i++) {
-            Road cur = _map.getLabel(segment.get(i), segment.get(i + 1));
+            Road cur = _map.getLabel(segment.vertex(i),
+                                     segment.vertex(i + 1));
             if (cur.toString().equals(prevName)
                     && cur.direction().equals(prevDir)) {
                 prevLength += cur.length();
@@ -120,11 +208,22 @@ class Trip {
                 + ". Take " + prevName + " "
                 + prevDir.fullName() + " for "
                 + round(prevLength) + " miles to "
-                + _map.getLabel(segment.get(segment.size() - 1))
+                + _map.getLabel(segment.last())
                 .toString() + ".");
         return seq + 1;
     }
 
+    /** Returns the total length of the roads along ROUTE. */
+    private double length(PackedPath route) {
+        double len;
+        len = 0.0;
+        for (int i = 1; i < route.size(); i += 1) {
+            len += _map.getLabel(route.vertex(i - 1),
+                                 route.vertex(i)).length();
+        }
+        return len;
+    }
+
     /** Round the distance.
      * @return dis
      * @param num number*/
@@ -161,25 +260,126 @@ class Trip {
         _map.add(v1, v0);
         _map.setLabel(v0, v1, road);
         _map.setLabel(v1, v0, backroad);
+        _map.setLength(v0, v1, length);
+        _map.setLength(v1, v0, length);
 
     }
 
+    /** Record that turning at location VIA from the road from location
+     *  FROM onto the road to location TO costs PENALTY, as given by map
+     *  entry #N. */
+    private void addPenalty(String from, String via, String to,
+                            double penalty, int n) {
+        long key = turn(from, via, to);
+        if (penalty < 0) {
+            error("map entry #%d: negative turn penalty", n);
+        }
+        _penalties.put(key, penalty);
+    }
+
+    /** Returns the key (see TurnNetwork.turnKey) of the turn at location
+     *  VIA from the road from location FROM onto the road to location
+     *  TO. */
+    private long turn(String from, String via, String to) {
+        int u = site(from), v = site(via), w = site(to);
+        if (!_map.contains(u, v)) {
+            error("no road from %s to %s", from, via);
+        } else if (!_map.contains(v, w)) {
+            error("no road from %s to %s", via, to);
+        }
+        return TurnNetwork.turnKey(u, v, w);
+    }
+
+    /** Record a travel-time profile for the road from location FROM to
+     *  location TO, reading from INP the number of breakpoints and then
+     *  each time and cost. */
+    private void addProfile(String from, String to, Scanner inp) {
+        int u = site(from), v = site(to);
+        if (!_map.contains(u, v)) {
+            error("no road from %s to %s", from, to);
+        }
+        int n = inp.nextInt();
+        double[] times = new double[Math.max(n, 0)],
+            costs = new double[Math.max(n, 0)];
+        for (int i = 0; i < n; i += 1) {
+            times[i] = inp.nextDouble();
+            costs[i] = inp.nextDouble();
+        }
+        _profiles.put(TurnNetwork.arcKey(u, v),
+                      new TurnNetwork.Profile(times, costs));
+    }
+
+    /** Returns the vertex of the location named NAME. */
+    private int site(String name) {
+        Integer v = _sites.get(name);
+        if (v == null) {
+            error("location %s not defined", name);
+        }
+        return v;
+    }
+
     /** Represents the network of Locations and Roads. */
     private RoadMap _map = new RoadMap();
     /** Mapping of Location names to corresponding map vertices. */
     private HashMap<String, Integer> _sites = new HashMap<>();
+    /** Turn penalties, keyed by TurnNetwork.turnKey. */
+    private HashMap<Long, Double> _penalties = new HashMap<>();
+    /** Prohibited turns, as TurnNetwork.turnKeys. */
+    private HashSet<Long> _prohibited = new HashSet<>();
+    /** Travel-time profiles, keyed by TurnNetwork.arcKey. */
+    private HashMap<Long, TurnNetwork.Profile> _profiles = new HashMap<>();
+    /** The edge-expanded map, or null if the map has no turn restrictions
+     *  or travel-time profiles. */
+    private TurnNetwork _network;
+    /** Time at which the next leg of the trip starts. */
+    private double _depart;
+    /** Reused to hold the route of each leg of the trip. */
+    private final PackedPath _route = new PackedPath();
 
     /** A labeled directed graph of Locations whose edges are labeled by
-     *  Roads. */
+     *  Roads and weighted by their lengths. */
     private static class RoadMap extends LabeledGraph<Location, Road> {
         /** An empty RoadMap. */
         RoadMap() {
-            super(new DirectedGraph());
+            this(new WeightedDirectedGraph());
+        }
+
+        /** An empty RoadMap whose structure and weights are kept in
+         *  ROADS. */
+        private RoadMap(WeightedDirectedGraph roads) {
+            super(roads);
+            _roads = roads;
+        }
+
+        /** Set the length of the road (U, V), which must be one of my
+         *  edges, to LENGTH. */
+        void setLength(int u, int v, double length) {
+            _roads.setWeight(u, v, length);
         }
+
+        /** The underlying graph. */
+        private final WeightedDirectedGraph _roads;
+    }
+
+    /** Alternative routes in _map between two locations. */
+    private class TripRoutes extends KShortestPaths {
+        /** Up to K routes from START to DEST according to _map. */
+        TripRoutes(int start, int dest, int k) {
+            super(_map, start, dest, k);
+            _finalLocation = _map.getLabel(dest);
+        }
+
+        @Override
+        protected double estimatedDistance(int v) {
+            return _map.getLabel(v).dist(_finalLocation);
+        }
+
+        /** Location of the destination. */
+        private final Location _finalLocation;
     }
 
     /** Paths in _map from a given location. */
-    private class TripPlan extends SimpleShortestPaths {
+    private class TripPlan extends WeightedShortestPaths {
         /** A plan for travel from START to DEST according to _map. */
         TripPlan(int start, int dest) {
             super(_map, start, dest);
@@ -188,11 +388,6 @@ class Trip {
             _dest = dest;
         }
 
-        @Override
-        protected double getWeight(int u, int v) {
-            return _map.getLabel(u, v).length();
-        }
-
         @Override
         protected double estimatedDistance(int v) {
             return _map.getLabel(v).dist(_finalLocation);
@@ -0,0 +1,327 @@
+package trip;
+
+import graph.Graph;
+import graph.GraphFilter;
+import graph.Iteration;
+import graph.KShortestPaths;
+import graph.LabeledGraph;
+import graph.OffHeapGraph;
+import graph.PackedPath;
+import graph.SimpleShortestPaths;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static trip.Main.error;
+
+/** An edge-expanded view of a road map, for routing with turn penalties,
+ *  prohibited turns, and time-dependent travel costs.  Each vertex of the
+ *  expanded graph stands for one directed road segment of the map (an
+ *  "arc"), and an edge joins arc (A, B) to arc (B, C) for every permitted
+ *  turn at B, so that the cost of an edge can depend on the turn it makes.
+ *  Each map location also has a vertex, with edges to the arcs leaving it
+ *  and from the arcs entering it; these serve only as the ends of a
+ *  search and are never passed through.
+ *
+ *  The cost of traveling an arc is its length, unless it has a travel-time
+ *  profile giving the cost as a piecewise-linear function of the time
+ *  at which the arc is entered.  Costs accumulate as elapsed time, so the
+ *  cost of each arc depends on the cost of the route before it.  Searches
+ *  use A* with an estimate scaled so that it never exceeds the real cost.
+ *  @author Yuhan Xie
+ */
+class TurnNetwork {
+
+    /** Bound on the location numbers that fit in a turnKey. */
+    static final int MAX_LOCATIONS = 1 << 21;
+
+    /** The expanded network for MAP, with a penalty added for each
+     *  turn in PENALTIES, the turns in PROHIBITED omitted, and the arcs in
+     *  PROFILES given those travel-time profiles.  Turns are keyed by
+     *  turnKey, and arcs by arcKey.  MAP must have fewer than
+     *  MAX_LOCATIONS locations. */
+    TurnNetwork(LabeledGraph<Location, Road> map,
+                HashMap<Long, Double> penalties, HashSet<Long> prohibited,
+                HashMap<Long, Profile> profiles) {
+        _map = map;
+        _penalties = penalties;
+        int locations = map.maxVertex();
+        if (locations >= MAX_LOCATIONS) {
+            error("map too large for turns and profiles: %d locations",
+                  locations);
+        }
+        HashMap<Long, Integer> arcIds = new HashMap<>();
+        ArrayList<int[]> arcs = new ArrayList<>();
+        for (int[] e : map.edges()) {
+            arcs.add(new int[] { e[0], e[1] });
+        }
+        _arcs = arcs.size();
+        _tail = new int[_arcs + 1];
+        _head = new int[_arcs + 1];
+        _profile = new Profile[_arcs + 1];
+        _graph = new OffHeapGraph(true);
+        double ratio;
+        ratio = 1.0;
+        for (int a = 1; a <= _arcs + locations; a += 1) {
+            _graph.add();
+        }
+        for (int a = 1; a <= _arcs; a += 1) {
+            int u = arcs.get(a - 1)[0], v = arcs.get(a - 1)[1];
+            _tail[a] = u;
+            _head[a] = v;
+            arcIds.put(arcKey(u, v), a);
+            _profile[a] = profiles.get(arcKey(u, v));
+            double length = map.getLabel(u, v).length();
+            if (_profile[a] != null && length > 0) {
+                ratio = Math.min(ratio, _profile[a].minCost() / length);
+            }
+        }
+        _ratio = ratio;
+        for (long key : profiles.keySet()) {
+            if (!arcIds.containsKey(key)) {
+                error("travel-time profile for a nonexistent road");
+            }
+        }
+        for (int a = 1; a <= _arcs; a += 1) {
+            int v = _head[a];
+            _graph.add(location(_tail[a]), a);
+            _graph.add(a, location(v));
+            for (int w : map.successors(v)) {
+                if (!prohibited.contains(turnKey(_tail[a], v, w))) {
+                    _graph.add(a, arcIds.get(arcKey(v, w)));
+                }
+            }
+        }
+    }
+
+    /** Returns the locations along a least-cost route from location FROM
+     *  to location TO, leaving at time DEPART, or null if there is none.
+     *  Sets arrival() to the time of arrival. */
+    PackedPath route(int from, int to, double depart) {
+        Search search = new Search(from, to, depart);
+        search.setPaths();
+        if (search.getPredecessor(location(to)) == 0) {
+            return null;
+        }
+        _arrival = depart + search.getWeight(location(to));
+        return locations(search.pathTo(location(to)));
+    }
+
+    /** Returns the time of arrival of the last route found. */
+    double arrival() {
+        return _arrival;
+    }
+
+    /** Returns up to K least-cost routes, as for route, from location FROM
+     *  to location TO, leaving at time DEPART.  Costs are those in effect at
+     *  the time of departure. */
+    List<PackedPath> routes(int from, int to, double depart, int k) {
+        KShortestPaths paths =
+            new KShortestPaths(new Ends(from), location(from),
+                               location(to), k) {
+                @Override
+                protected double getWeight(int u, int v) {
+                    return cost(u, v, depart);
+                }
+            };
+        paths.setPaths();
+        ArrayList<PackedPath> result = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i += 1) {
+            result.add(locations(paths.pathTo(i)));
+        }
+        return result;
+    }
+
+    /** Returns the key identifying the arc from location U to location
+     *  V. */
+    static long arcKey(int u, int v) {
+        return ((long) u << 32) | v;
+    }
+
+    /** Returns the key identifying a turn at location V from the arc from
+     *  U onto the arc to W.  Assumes all three are less than
+     *  MAX_LOCATIONS. */
+    static long turnKey(int u, int v, int w) {
+        return ((long) u << 42) | ((long) v << 21) | w;
+    }
+
+    /** Returns the expanded vertex for location V. */
+    private int location(int v) {
+        return _arcs + v;
+    }
+
+    /** Returns the cost of expanded edge (U, V) when U is reached at time
+     *  T. */
+    private double cost(int u, int v, double t) {
+        if (v > _arcs) {
+            return 0.0;
+        }
+        double penalty;
+        if (u > _arcs || _penalties.isEmpty()) {
+            penalty = 0.0;
+        } else {
+            Double p = _penalties.get(turnKey(_tail[u], _head[u], _head[v]));
+            penalty = p == null ? 0.0 : p;
+        }
+        if (_profile[v] == null) {
+            return penalty + _map.getLabel(_tail[v], _head[v]).length();
+        }
+        return penalty + _profile[v].cost(t + penalty);
+    }
+
+    /** Returns the locations along the expanded PATH, which starts and
+     *  ends with location vertices. */
+    private PackedPath locations(List<Integer> path) {
+        PackedPath result = new PackedPath(path.size() - 1);
+        for (int i = path.size() - 2; i > 0; i -= 1) {
+            result.addFirst(_head[path.get(i)]);
+        }
+        result.addFirst(path.get(0) - _arcs);
+        return result;
+    }
+
+    /** A piecewise-linear travel-time profile. */
+    static class Profile {
+        /** A profile whose cost at time TIMES[i] is COSTS[i], with linear
+         *  interpolation between and constant values outside those times.
+         *  TIMES must be increasing, and the costs must not fall faster than
+         *  time advances (so that leaving later never means arriving
+         *  earlier). */
+        Profile(double[] times, double[] costs) {
+            if (times.length == 0) {
+                error("empty travel-time profile");
+            }
+            double least = costs[0];
+            for (int i = 0; i < times.length; i += 1) {
+                if (costs[i] < 0) {
+                    error("negative travel time");
+                }
+                least = Math.min(least, costs[i]);
+                if (i > 0 && (times[i] <= times[i - 1]
+                              || costs[i] - costs[i - 1]
+                                 < times[i - 1] - times[i])) {
+                    error("bad travel-time profile");
+                }
+            }
+            _times = times;
+            _costs = costs;
+            _least = least;
+        }
+
+        /** Returns the cost of entering my arc at time T. */
+        double cost(double t) {
+            int n = _times.length;
+            if (t <= _times[0]) {
+                return _costs[0];
+            } else if (t >= _times[n - 1]) {
+                return _costs[n - 1];
+            }
+            int lo = 0, hi = n - 1;
+            while (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                if (_times[mid] <= t) {
+                    lo = mid;
+                } else {
+                    hi = mid;
+                }
+            }
+            double f = (t - _times[lo]) / (_times[hi] - _times[lo]);
+            return _costs[lo] + f * (_costs[hi] - _costs[lo]);
+        }
+
+        /** Returns my least cost. */
+        double minCost() {
+            return _least;
+        }
+
+        /** Breakpoint times and costs. */
+        private final double[] _times, _costs;
+        /** Least of _costs. */
+        private final double _least;
+    }
+
+    /** The expanded graph with the edges out of all location vertices but
+     *  one removed. */
+    private class Ends extends GraphFilter {
+        /** The expanded graph, in which only location SOURCE may be left. */
+        Ends(int source) {
+            super(_graph);
+            _source = location(source);
+        }
+
+        @Override
+        public Iteration<Integer> successors(int v) {
+            if (v > _arcs && v != _source) {
+                return new Iteration<Integer>() {
+                    @Override
+                    public boolean hasNext() {
+                        return false;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        throw new NoSuchElementException();
+                    }
+                };
+            }
+            return super.successors(v);
+        }
+
+        @Override
+        public boolean contains(int u, int v) {
+            return (u <= _arcs || u == _source) && super.contains(u, v);
+        }
+
+        /** The vertex of the starting location. */
+        private final int _source;
+    }
+
+    /** A time-dependent A* search over the expanded graph. */
+    private class Search extends SimpleShortestPaths {
+        /** A search from location FROM to location TO, leaving at time
+         *  DEPART. */
+        Search(int from, int to, double depart) {
+            super(new Ends(from), location(from), location(to));
+            _depart = depart;
+            _target = _map.getLabel(to);
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return cost(u, v, _depart + getWeight(u));
+        }
+
+        @Override
+        protected double estimatedDistance(int v) {
+            int loc = v > _arcs ? v - _arcs : _head[v];
+            return _ratio * _map.getLabel(loc).dist(_target);
+        }
+
+        /** Time of departure. */
+        private final double _depart;
+        /** The destination. */
+        private final Location _target;
+    }
+
+    /** The road map. */
+    private final LabeledGraph<Location, Road> _map;
+    /** The expanded graph: arcs 1 .. _arcs, then locations. */
+    private final Graph _graph;
+    /** Number of arcs. */
+    private final int _arcs;
+    /** Locations at the start and end of each arc. */
+    private final int[] _tail, _head;
+    /** Travel-time profile of each arc, or null if its cost is its
+     *  length. */
+    private final Profile[] _profile;
+    /** Turn penalties, keyed by turnKey. */
+    private final HashMap<Long, Double> _penalties;
+    /** Factor by which straight-line distance is scaled to keep the A*
+     *  estimate below the true cost. */
+    private final double _ratio;
+    /** Arrival time of the last route. */
+    private double _arrival;
+}
@@ -0,0 +1,75 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+
+/** A compressed (CSR) snapshot of the successor lists of a Graph.  The
+ *  successors of vertex V occupy targets()[start(V)] through
+ *  targets()[start(V + 1) - 1], in the order G.successors(V) delivers them.
+ *  Later changes to the Graph are not reflected in the snapshot.
+ *  @author Yuhan Xie
+ */
+final class Adjacency {
+
+    /** A snapshot of the successor lists of G. */
+    Adjacency(Graph G) {
+        _maxVertex = G.maxVertex();
+        _start = new int[_maxVertex + 2];
+        _live = new boolean[_maxVertex + 1];
+        int[] targets = new int[Math.max(G.edgeSize(), 4)];
+        int n;
+        n = 0;
+        for (int v = 1; v <= _maxVertex; v += 1) {
+            _start[v] = n;
+            if (G.contains(v)) {
+                _live[v] = true;
+                for (int w : G.successors(v)) {
+                    if (n == targets.length) {
+                        targets = Arrays.copyOf(targets, 2 * n);
+                    }
+                    targets[n] = w;
+                    n += 1;
+                }
+            }
+        }
+        _start[_maxVertex + 1] = n;
+        _targets = targets;
+    }
+
+    /** Returns the maximum vertex number of the snapshotted graph. */
+    int maxVertex() {
+        return _maxVertex;
+    }
+
+    /** Returns true iff V was a vertex of the snapshotted graph. */
+    boolean contains(int v) {
+        return v > 0 && v <= _maxVertex && _live[v];
+    }
+
+    /** Returns the index in targets() of the first successor of V. */
+    int start(int v) {
+        return _start[v];
+    }
+
+    /** Returns one past the index in targets() of the last successor
+     *  of V. */
+    int end(int v) {
+        return _start[v + 1];
+    }
+
+    /** Returns the successor array.  Only the portions delimited by start
+     *  and end are meaningful. */
+    int[] targets() {
+        return _targets;
+    }
+
+    /** Largest vertex number. */
+    private final int _maxVertex;
+    /** Index of each vertex's first successor in _targets. */
+    private final int[] _start;
+    /** Concatenated successor lists. */
+    private final int[] _targets;
+    /** _live[v] is true iff v is a vertex. */
+    private final boolean[] _live;
+}
@@ -0,0 +1,401 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/** The shortest paths between all pairs of vertices of an edge-weighted
+ *  graph.  Distances are kept in a flat V x V matrix (V the number of
+ *  vertices), together with a matrix giving the first step of a shortest
+ *  path between each pair, from which paths are reconstructed.  Edge
+ *  weights may be negative, provided there is no cycle of negative total
+ *  weight.
+ *
+ *  There are two methods of computing the paths.  FLOYD_WARSHALL runs a
+ *  cache-blocked version of the Floyd-Warshall algorithm over the matrix,
+ *  processing independent blocks in parallel; it suits dense graphs.
+ *  JOHNSON runs Dijkstra's algorithm (using ShortestPaths) from each
+ *  vertex in parallel, after first reweighting the edges with potentials
+ *  computed by the Bellman-Ford algorithm if there are any negative
+ *  weights; it suits sparse graphs.  AUTOMATIC chooses between them by
+ *  the density of the graph.
+ *
+ *  By default, the weight of an edge is the one stored in the graph, if it
+ *  is a WeightedDirectedGraph or a filter over one, and otherwise 1.
+ *  Clients may override getWeight(U, V) to supply other weights; when
+ *  computing in parallel, it may be called from several threads at once.
+ *  @author Yuhan Xie
+ */
+public class AllPairsShortestPaths {
+
+    /** Ways of computing the paths. */
+    public enum Method {
+        /** Blocked Floyd-Warshall. */
+        FLOYD_WARSHALL,
+        /** Johnson's algorithm. */
+        JOHNSON,
+        /** Whichever of the others suits the graph. */
+        AUTOMATIC
+    }
+
+    /** Largest number of vertices V for which the V x V matrices, and int
+     *  indices into them, fit in Java arrays. */
+    public static final int MAX_VERTICES = 46340;
+
+    /** The shortest paths between all pairs of vertices of G. */
+    public AllPairsShortestPaths(Graph G) {
+        _G = G;
+        _weighted = G.weighted();
+        _threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Use at most THREADS threads (at least 1) in setPaths. */
+    public void setThreads(int threads) {
+        _threads = Math.max(1, threads);
+    }
+
+    /** Compute the shortest paths, choosing the method automatically.
+     *  Must be called before distance, next, and pathTo, and again after
+     *  the graph or its weights change. */
+    public void setPaths() {
+        setPaths(Method.AUTOMATIC);
+    }
+
+    /** Compute the shortest paths using METHOD.  Throws
+     *  IllegalArgumentException if the graph has a negative cycle, or has
+     *  more than MAX_VERTICES vertices. */
+    public void setPaths(Method method) {
+        if (_G.vertexSize() > MAX_VERTICES) {
+            throw new IllegalArgumentException(
+                String.format("graph too large for all-pairs matrices: %d "
+                              + "vertices (at most %d)", _G.vertexSize(),
+                              MAX_VERTICES));
+        }
+        _n = _G.vertexSize();
+        _vertex = new int[_n];
+        _index = new int[_G.maxVertex() + 1];
+        Arrays.fill(_index, -1);
+        int i;
+        i = 0;
+        for (int v : _G.vertices()) {
+            _vertex[i] = v;
+            _index[v] = i;
+            i += 1;
+        }
+        _dist = new double[_n * _n];
+        _next = new int[_n * _n];
+        Arrays.fill(_dist, INF);
+        Arrays.fill(_next, -1);
+
+        if (method == Method.AUTOMATIC) {
+            long arcs = 0;
+            for (int v : _vertex) {
+                arcs += _G.outDegree(v);
+            }
+            long log = 64 - Long.numberOfLeadingZeros(_n);
+            method = arcs * log < (long) _n * _n
+                ? Method.JOHNSON : Method.FLOYD_WARSHALL;
+        }
+        ForkJoinPool pool = new ForkJoinPool(_threads);
+        try {
+            if (method == Method.JOHNSON) {
+                johnson(pool);
+            } else {
+                floydWarshall(pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Returns the length of a shortest path from U to V, or positive
+     *  infinity if there is none. */
+    public double distance(int u, int v) {
+        int i = indexOf(u), j = indexOf(v);
+        return _dist[i * _n + j];
+    }
+
+    /** Returns the vertex following U on a shortest path from U to V, or
+     *  0 if there is no path or U is V. */
+    public int next(int u, int v) {
+        int i = indexOf(u), j = indexOf(v);
+        int k = _next[i * _n + j];
+        return k < 0 || i == j ? 0 : _vertex[k];
+    }
+
+    /** Returns the vertices along a shortest path from U to V, starting
+     *  with U and ending with V, or null if there is no such path. */
+    public List<Integer> pathTo(int u, int v) {
+        int i = indexOf(u), j = indexOf(v);
+        if (_dist[i * _n + j] == INF) {
+            return null;
+        }
+        ArrayList<Integer> path = new ArrayList<>();
+        path.add(u);
+        while (i != j) {
+            i = _next[i * _n + j];
+            path.add(_vertex[i]);
+        }
+        return path;
+    }
+
+    /** Returns the weight of edge (U, V), which must be one of my
+     *  graph's edges. */
+    protected double getWeight(int u, int v) {
+        return _weighted == null ? 1.0 : _weighted.weight(u, v);
+    }
+
+    /** Returns the index of vertex V in my matrices, checking that it is a
+     *  vertex of my graph. */
+    private int indexOf(int v) {
+        if (_dist == null) {
+            throw new IllegalStateException("paths not computed");
+        }
+        if (v <= 0 || v >= _index.length || _index[v] < 0) {
+            throw new IllegalArgumentException("vertex not from Graph");
+        }
+        return _index[v];
+    }
+
+    /** Fill in the matrices using Floyd-Warshall over blocks of BLOCK x
+     *  BLOCK entries, running independent blocks in parallel on POOL.
+     *  For each diagonal block K, first the block itself is updated, then
+     *  the other blocks in its row and column (which depend only on it),
+     *  and then all remaining blocks (which depend only on those). */
+    private void floydWarshall(ForkJoinPool pool) {
+        int n = _n;
+        for (int i = 0; i < n; i += 1) {
+            _dist[i * n + i] = 0.0;
+            _next[i * n + i] = i;
+            int u = _vertex[i];
+            for (int v : _G.successors(u)) {
+                int j = _index[v];
+                double w = getWeight(u, v);
+                if (w < _dist[i * n + j]) {
+                    _dist[i * n + j] = w;
+                    _next[i * n + j] = j;
+                }
+            }
+        }
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        for (int k = 0; k < blocks; k += 1) {
+            final int kb = k;
+            relaxBlock(kb, kb, kb);
+            pool.submit(() -> IntStream.range(0, 2 * blocks).parallel()
+                        .forEach(t -> {
+                            int b = t >> 1;
+                            if (b != kb) {
+                                if ((t & 1) == 0) {
+                                    relaxBlock(kb, b, kb);
+                                } else {
+                                    relaxBlock(b, kb, kb);
+                                }
+                            }
+                        })).join();
+            pool.submit(() -> IntStream.range(0, blocks * blocks).parallel()
+                        .forEach(t -> {
+                            int bi = t / blocks, bj = t % blocks;
+                            if (bi != kb && bj != kb) {
+                                relaxBlock(bi, bj, kb);
+                            }
+                        })).join();
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (_dist[i * n + i] < 0) {
+                throw new IllegalArgumentException(
+                    "graph has a negative cycle");
+            }
+        }
+    }
+
+    /** Relax the paths in block (BI, BJ) of the matrices through the
+     *  intermediate vertices in diagonal block BK. */
+    private void relaxBlock(int bi, int bj, int bk) {
+        int n = _n;
+        double[] dist = _dist;
+        int[] next = _next;
+        int k1 = Math.min(n, (bk + 1) * BLOCK),
+            i1 = Math.min(n, (bi + 1) * BLOCK),
+            j0 = bj * BLOCK, j1 = Math.min(n, (bj + 1) * BLOCK);
+        for (int k = bk * BLOCK; k < k1; k += 1) {
+            int krow = k * n;
+            for (int i = bi * BLOCK; i < i1; i += 1) {
+                int irow = i * n;
+                double dik = dist[irow + k];
+                if (dik == INF) {
+                    continue;
+                }
+                int nik = next[irow + k];
+                for (int j = j0; j < j1; j += 1) {
+                    double d = dik + dist[krow + j];
+                    if (d < dist[irow + j]) {
+                        dist[irow + j] = d;
+                        next[irow + j] = nik;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Fill in the matrices using Johnson's algorithm, running the
+     *  single-source searches in parallel on POOL. */
+    private void johnson(ForkJoinPool pool) {
+        double[] potential = potentials();
+        boolean stored = potential == null && _weighted != null
+            && getClass() == AllPairsShortestPaths.class;
+        pool.submit(() -> IntStream.range(0, _n).parallel().forEach(i -> {
+            SourcePaths paths =
+                new SourcePaths(_vertex[i], potential, stored);
+            paths.setPaths();
+            paths.record(i);
+        })).join();
+    }
+
+    /** Returns vertex potentials, indexed by vertex, that make every edge
+     *  weight nonnegative when adjusted as in SourcePaths, or null if all
+     *  weights are nonnegative already.  Computed by the Bellman-Ford
+     *  algorithm from an imaginary vertex with a zero-weight edge to
+     *  every vertex. */
+    private double[] potentials() {
+        int arcs;
+        arcs = 0;
+        for (int u : _vertex) {
+            arcs += _G.outDegree(u);
+        }
+        int[] from = new int[arcs], to = new int[arcs];
+        double[] weight = new double[arcs];
+        boolean negative;
+        negative = false;
+        int e;
+        e = 0;
+        for (int u : _vertex) {
+            for (int v : _G.successors(u)) {
+                from[e] = u;
+                to[e] = v;
+                weight[e] = getWeight(u, v);
+                negative |= weight[e] < 0;
+                e += 1;
+            }
+        }
+        if (!negative) {
+            return null;
+        }
+        double[] h = new double[_index.length];
+        for (int round = 0; round <= _n; round += 1) {
+            boolean changed;
+            changed = false;
+            for (e = 0; e < arcs; e += 1) {
+                double d = h[from[e]] + weight[e];
+                if (d < h[to[e]]) {
+                    h[to[e]] = d;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return h;
+            }
+        }
+        throw new IllegalArgumentException("graph has a negative cycle");
+    }
+
+    /** Dijkstra's algorithm from one source, on the weights adjusted by a
+     *  set of potentials. */
+    private class SourcePaths extends SimpleShortestPaths {
+        /** The shortest paths from SOURCE, adjusting the weight of each
+         *  edge (U, V) by POTENTIAL[U] - POTENTIAL[V] unless POTENTIAL is
+         *  null.  Reads the graph's stored weights directly iff STORED. */
+        SourcePaths(int source, double[] potential, boolean stored) {
+            super(AllPairsShortestPaths.this._G, source);
+            _potential = potential;
+            _stored = stored;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            double w = AllPairsShortestPaths.this.getWeight(u, v);
+            return _potential == null
+                ? w : w + _potential[u] - _potential[v];
+        }
+
+        @Override
+        WeightedDirectedGraph edgeWeights() {
+            return _stored ? _weighted : null;
+        }
+
+        /** Copy my results into row I of the matrices. */
+        void record(int i) {
+            int n = _n, row = i * n, source = getSource();
+            int[] first = new int[_index.length];
+            int[] stack = new int[n];
+            for (int j = 0; j < n; j += 1) {
+                int v = _vertex[j];
+                if (v != source && getPredecessor(v) == 0) {
+                    continue;
+                }
+                double d = getWeight(v);
+                if (_potential != null) {
+                    d += _potential[v] - _potential[source];
+                }
+                _dist[row + j] = d;
+                _next[row + j] = _index[firstStep(v, first, stack)];
+            }
+        }
+
+        /** Returns the first vertex after the source on my path to V,
+         *  which must be reachable, caching results in FIRST and using
+         *  STACK as scratch space. */
+        private int firstStep(int v, int[] first, int[] stack) {
+            int source = getSource();
+            if (v == source) {
+                return v;
+            }
+            int sp;
+            sp = 0;
+            int u = v;
+            while (first[u] == 0 && getPredecessor(u) != source) {
+                stack[sp] = u;
+                sp += 1;
+                u = getPredecessor(u);
+            }
+            int f = first[u] != 0 ? first[u] : u;
+            first[u] = f;
+            while (sp > 0) {
+                sp -= 1;
+                first[stack[sp]] = f;
+            }
+            return f;
+        }
+
+        /** Vertex potentials, or null. */
+        private final double[] _potential;
+        /** True iff searches may read the graph's stored weights. */
+        private final boolean _stored;
+    }
+
+    /** Distance to an unreachable vertex. */
+    private static final double INF = Double.POSITIVE_INFINITY;
+    /** Side of the blocks processed by floydWarshall. */
+    private static final int BLOCK = 64;
+
+    /** The graph searched. */
+    private final Graph _G;
+    /** The graph holding my graph's stored weights, or null. */
+    private final WeightedDirectedGraph _weighted;
+    /** Maximum number of threads used. */
+    private int _threads;
+    /** Number of vertices. */
+    private int _n;
+    /** Vertex at each matrix index. */
+    private int[] _vertex;
+    /** Matrix index of each vertex, or -1. */
+    private int[] _index;
+    /** Distance from vertex i to vertex j at index i * _n + j. */
+    private double[] _dist;
+    /** Index of the vertex after vertex i on a shortest path from vertex i
+     *  to vertex j at index i * _n + j, or -1 if there is none. */
+    private int[] _next;
+}
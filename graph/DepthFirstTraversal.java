@@ -1,4 +1,6 @@
 package graph;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 
 import java.util.ArrayDeque;
@@ -9,6 +11,16 @@ import java.util.ArrayDeque;
 /** Implements a depth-first traversal of a graph.  Generally, the
  *  client will extend this class, overriding the visit and
  *  postVisit methods, as desired (by default, they do nothing).
+ *
+ *  The traversal runs on an explicit stack of (vertex, successor cursor)
+ *  pairs held in int arrays over a compact snapshot of the graph's
+ *  adjacency lists, so it takes O(V + E) time, never recurses, and
+ *  allocates nothing per vertex.  Each vertex is visited when first
+ *  reached and postvisited (if shouldPostVisit) exactly when all of its
+ *  successors have been finished, giving true preorder and postorder.
+ *  Successors are explored in the order the graph lists them if
+ *  reverseSuccessors is true (the default), and in the opposite order
+ *  otherwise.
  *  @author Yuhan Xie
  */
 public class DepthFirstTraversal extends Traversal {
@@ -19,6 +31,90 @@ public class DepthFirstTraversal extends Traversal {
         super(G, Collections.asLifoQueue(new ArrayDeque<Integer>()));
     }
 
+    @Override
+    public void traverse(Collection<Integer> V0) {
+        long start = startClock();
+        long visited, edges, maxDepth;
+        visited = edges = maxDepth = 0;
+        Adjacency adj = adjacency();
+        int[] targets = adj.targets();
+        int top;
+
+    traversal:
+        for (int root : V0) {
+            if (!adj.contains(root) || marked(root)) {
+                continue;
+            }
+            visited += 1;
+            if (!enter(root, 0, adj)) {
+                break;
+            }
+            top = 1;
+            while (top > 0) {
+                maxDepth = Math.max(maxDepth, top);
+                int v = _stack[top - 1];
+                int k = _cursor[top - 1];
+                if (k != _last[top - 1]) {
+                    _cursor[top - 1] = k < _last[top - 1] ? k + 1 : k - 1;
+                    int w = targets[k];
+                    edges += 1;
+                    if (!marked(w)) {
+                        visited += 1;
+                        if (!enter(w, top, adj)) {
+                            break traversal;
+                        }
+                        top += 1;
+                    }
+                } else {
+                    top -= 1;
+                    if (shouldPostVisit(v) && !postVisit(v)) {
+                        break traversal;
+                    }
+                }
+            }
+        }
+        recordTraversal(start, visited, edges, maxDepth);
+    }
+
+    /** Visit and mark V, and place it on the stack at index TOP, where it
+     *  will iterate over its successors in ADJ.  Returns false iff the
+     *  traversal is to terminate. */
+    private boolean enter(int v, int top, Adjacency adj) {
+        if (!visit(v)) {
+            return false;
+        }
+        mark(v);
+        _stack[top] = v;
+        int first = adj.start(v), end = adj.end(v);
+        if (reverseSuccessors(v)) {
+            _cursor[top] = first;
+            _last[top] = end;
+        } else {
+            _cursor[top] = end - 1;
+            _last[top] = first - 1;
+        }
+        return true;
+    }
+
+    /** Returns a snapshot of my graph's adjacency lists, reusing the
+     *  previous one if the graph has not changed since, and makes sure the
+     *  stack is large enough for it. */
+    private Adjacency adjacency() {
+        Graph G = graph();
+        int version = G.version();
+        if (_adj == null || version == -1 || version != _adjVersion) {
+            _adj = new Adjacency(G);
+            _adjVersion = version;
+            int n = _adj.maxVertex() + 1;
+            if (_stack.length < n) {
+                _stack = Arrays.copyOf(_stack, n);
+                _cursor = Arrays.copyOf(_cursor, n);
+                _last = Arrays.copyOf(_last, n);
+            }
+        }
+        return _adj;
+    }
+
     @Override
     protected boolean visit(int v) {
         return true;
@@ -36,4 +132,17 @@ public class DepthFirstTraversal extends Traversal {
         return true;
     }
 
+    /** Snapshot of the graph being traversed. */
+    private Adjacency _adj;
+    /** Graph version from which _adj was taken. */
+    private int _adjVersion;
+    /** Vertices on the current path from the root. */
+    private int[] _stack = new int[0];
+    /** _cursor[i] is the index in _adj.targets() of the next successor of
+     *  _stack[i] to explore. */
+    private int[] _cursor = new int[0];
+    /** _last[i] is the value of _cursor[i] once all successors of _stack[i]
+     *  have been explored. */
+    private int[] _last = new int[0];
+
 }
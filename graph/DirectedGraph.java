@@ -32,20 +32,18 @@ public class DirectedGraph extends GraphObj {
             return Iteration.iteration(empty);
         }
         Iteration<Integer> iterator = new Iteration<>() {
-            private int position = 0;
+            private Iterator<Integer> rest = getoutList().get(v).iterator();
             private boolean selfEdge = getSelfEdges().get(v) == 1;
             @Override
             public boolean hasNext() {
-                return getoutList().get(v).size() > position || selfEdge;
+                return rest.hasNext() || selfEdge;
             }
             public Integer next() {
                 if (selfEdge) {
                     selfEdge = false;
                     return v;
                 }
-                int result = getoutList().get(v).get(position);
-                position++;
-                return result;
+                return rest.next();
             }
         };
         return iterator;
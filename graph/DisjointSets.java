@@ -0,0 +1,99 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+
+/** A union-find structure over the integers 0 .. capacity - 1, using union
+ *  by rank and path compression, so that a sequence of M operations on N
+ *  elements takes O(M alpha(N)) time.
+ *  @author Yuhan Xie
+ */
+class DisjointSets {
+
+    /** A structure in which each of 0 .. N - 1 is in its own set. */
+    DisjointSets(int n) {
+        _parent = new int[0];
+        _rank = new byte[0];
+        _size = new int[0];
+        reset(n);
+    }
+
+    /** Put each of 0 .. N - 1 back in its own set. */
+    void reset(int n) {
+        if (n > _parent.length) {
+            _parent = new int[n];
+            _rank = new byte[n];
+            _size = new int[n];
+        }
+        for (int i = 0; i < _parent.length; i += 1) {
+            _parent[i] = i;
+        }
+        Arrays.fill(_rank, (byte) 0);
+        Arrays.fill(_size, 1);
+    }
+
+    /** Make X a singleton set, extending my capacity to include X if
+     *  necessary.  X must not currently be joined with any other
+     *  element. */
+    void makeSet(int x) {
+        if (x >= _parent.length) {
+            int n = Math.max(2 * _parent.length, x + 1);
+            int old = _parent.length;
+            _parent = Arrays.copyOf(_parent, n);
+            _rank = Arrays.copyOf(_rank, n);
+            _size = Arrays.copyOf(_size, n);
+            for (int i = old; i < n; i += 1) {
+                _parent[i] = i;
+                _size[i] = 1;
+            }
+        }
+        _parent[x] = x;
+        _rank[x] = 0;
+        _size[x] = 1;
+    }
+
+    /** Returns the representative of the set containing X. */
+    int find(int x) {
+        int root = x;
+        while (_parent[root] != root) {
+            root = _parent[root];
+        }
+        while (_parent[x] != root) {
+            int next = _parent[x];
+            _parent[x] = root;
+            x = next;
+        }
+        return root;
+    }
+
+    /** Merge the sets containing X and Y. */
+    void union(int x, int y) {
+        x = find(x);
+        y = find(y);
+        if (x == y) {
+            return;
+        }
+        if (_rank[x] < _rank[y]) {
+            int t = x;
+            x = y;
+            y = t;
+        } else if (_rank[x] == _rank[y]) {
+            _rank[x] += 1;
+        }
+        _parent[y] = x;
+        _size[x] += _size[y];
+    }
+
+    /** Returns the number of elements in the set containing X. */
+    int size(int x) {
+        return _size[find(x)];
+    }
+
+    /** Parent links; roots are their own parents. */
+    private int[] _parent;
+    /** Upper bounds on the heights of the trees rooted at each root. */
+    private byte[] _rank;
+    /** Number of elements in the set of each root. */
+    private int[] _size;
+}
@@ -0,0 +1,296 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** A shortest-path tree from a single source that is repaired, rather than
+ *  recomputed, when edges change.  After setPaths computes the tree, the
+ *  client reports each change to the graph: edgeDecreased after an edge is
+ *  added or its weight reduced, and edgeIncreased after its weight grows
+ *  or it is removed.  Following Ramalingam and Reps, only the vertices
+ *  whose distances actually change are visited.  A decrease propagates
+ *  outward from the edge's target as in Dijkstra's algorithm, stopping
+ *  wherever the new distances are no better.  An increase of a tree edge
+ *  invalidates just the subtree below it; each vertex there is first given
+ *  the best distance offered by a predecessor outside the subtree, and
+ *  then the subtree is re-settled by Dijkstra's algorithm.
+ *
+ *  As for AllPairsShortestPaths, edge weights are by default those
+ *  stored in the graph, if any, and otherwise 1; clients may override
+ *  getWeight(U, V).  Weights must be nonnegative.  The graph must not gain
+ *  vertices numbered higher than it had when this object was created.
+ *  @author Yuhan Xie
+ */
+public class DynamicShortestPaths {
+
+    /** The shortest paths in G from SOURCE. */
+    public DynamicShortestPaths(Graph G, int source) {
+        if (!G.contains(source)) {
+            throw new IllegalArgumentException("vertex not from Graph");
+        }
+        _G = G;
+        _weighted = G.weighted();
+        _source = source;
+        int size = G.maxVertex() + 1;
+        _dist = new double[size];
+        _pred = new int[size];
+        _affected = new boolean[size];
+        _heap = new int[size];
+        _heapPos = new int[size];
+        _stack = new int[size];
+        Arrays.fill(_heapPos, -1);
+        _stored = _weighted != null
+            && getClass() == DynamicShortestPaths.class;
+    }
+
+    /** Compute the shortest-path tree from scratch. */
+    public void setPaths() {
+        Arrays.fill(_dist, INF);
+        Arrays.fill(_pred, 0);
+        Arrays.fill(_heapPos, -1);
+        _heapSize = 0;
+        _dist[_source] = 0.0;
+        offer(_source);
+        _repaired = settle();
+    }
+
+    /** Returns the length of a shortest path from the source to V, or
+     *  positive infinity if there is none. */
+    public double getWeight(int v) {
+        return v > 0 && v < _dist.length ? _dist[v] : INF;
+    }
+
+    /** Returns the vertex before V on a shortest path from the source, or
+     *  0 if V is the source or unreachable. */
+    public int getPredecessor(int v) {
+        return v > 0 && v < _pred.length ? _pred[v] : 0;
+    }
+
+    /** Returns the source vertex. */
+    public int getSource() {
+        return _source;
+    }
+
+    /** Returns the vertices along a shortest path from the source to V, or
+     *  null if there is none. */
+    public List<Integer> pathTo(int v) {
+        if (getWeight(v) == INF) {
+            return null;
+        }
+        ArrayList<Integer> path = new ArrayList<>();
+        for (int u = v; u != 0; u = _pred[u]) {
+            path.add(u);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Repair the tree after edge (U, V) has been added or its weight
+     *  reduced. */
+    public void edgeDecreased(int u, int v) {
+        if (!_G.isDirected()) {
+            improve(v, u);
+        }
+        improve(u, v);
+        _repaired = settle();
+    }
+
+    /** Repair the tree after edge (U, V) has been removed or its weight
+     *  increased. */
+    public void edgeIncreased(int u, int v) {
+        _repaired = 0;
+        if (_pred[v] == u) {
+            rebuild(v);
+        } else if (!_G.isDirected() && _pred[u] == v) {
+            rebuild(u);
+        }
+    }
+
+    /** Returns the number of vertices whose distances were recomputed by
+     *  the last call of setPaths, edgeDecreased, or edgeIncreased. */
+    public int repaired() {
+        return _repaired;
+    }
+
+    /** Returns the weight of edge (U, V), which must be one of my
+     *  graph's edges. */
+    protected double getWeight(int u, int v) {
+        return _weighted == null ? 1.0 : _weighted.weight(u, v);
+    }
+
+    /** If edge (U, V) now gives a shorter path to V, record it and queue V
+     *  for propagation. */
+    private void improve(int u, int v) {
+        if (_dist[u] == INF || !_G.contains(u, v)) {
+            return;
+        }
+        double d = _dist[u] + getWeight(u, v);
+        if (d < _dist[v]) {
+            _dist[v] = d;
+            _pred[v] = u;
+            offer(v);
+        }
+    }
+
+    /** Recompute distances to the vertices in the subtree rooted at ROOT,
+     *  whose path from the source has become longer or disappeared. */
+    private void rebuild(int root) {
+        int n;
+        n = 0;
+        _stack[n++] = root;
+        _affected[root] = true;
+        for (int i = 0; i < n; i += 1) {
+            int x = _stack[i];
+            for (int y : _G.successors(x)) {
+                if (_pred[y] == x && !_affected[y]) {
+                    _affected[y] = true;
+                    _stack[n++] = y;
+                }
+            }
+        }
+        for (int i = 0; i < n; i += 1) {
+            int y = _stack[i];
+            _dist[y] = INF;
+            _pred[y] = 0;
+        }
+        for (int i = 0; i < n; i += 1) {
+            int y = _stack[i];
+            for (int x : _G.predecessors(y)) {
+                if (!_affected[x] && _dist[x] != INF) {
+                    double d = _dist[x] + getWeight(x, y);
+                    if (d < _dist[y]) {
+                        _dist[y] = d;
+                        _pred[y] = x;
+                    }
+                }
+            }
+            if (_dist[y] != INF) {
+                offer(y);
+            }
+        }
+        for (int i = 0; i < n; i += 1) {
+            _affected[_stack[i]] = false;
+        }
+        settle();
+        _repaired = n;
+    }
+
+    /** Run Dijkstra's algorithm from the queued vertices until the queue
+     *  is empty, returning the number of vertices settled. */
+    private int settle() {
+        int settled;
+        settled = 0;
+        while (_heapSize > 0) {
+            int x = poll();
+            settled += 1;
+            double dx = _dist[x];
+            if (_stored) {
+                int[] targets = _weighted.targets(x);
+                double[] weights = _weighted.weights(x);
+                int n = _weighted.successorCount(x);
+                for (int k = 0; k < n; k += 1) {
+                    relax(x, targets[k], dx + weights[k]);
+                }
+            } else {
+                for (int y : _G.successors(x)) {
+                    relax(x, y, dx + getWeight(x, y));
+                }
+            }
+        }
+        return settled;
+    }
+
+    /** Make X the predecessor of Y if D is less than Y's distance. */
+    private void relax(int x, int y, double d) {
+        if (d < _dist[y]) {
+            _dist[y] = d;
+            _pred[y] = x;
+            offer(y);
+        }
+    }
+
+    /** Add V to the queue, or move it up if it is already there. */
+    private void offer(int v) {
+        int i = _heapPos[v];
+        if (i < 0) {
+            i = _heapSize;
+            _heapSize += 1;
+        }
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (_dist[_heap[parent]] <= _dist[v]) {
+                break;
+            }
+            place(_heap[parent], i);
+            i = parent;
+        }
+        place(v, i);
+    }
+
+    /** Remove and return the queued vertex with the smallest distance. */
+    private int poll() {
+        int top = _heap[0];
+        _heapPos[top] = -1;
+        _heapSize -= 1;
+        if (_heapSize > 0) {
+            int v = _heap[_heapSize];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= _heapSize) {
+                    break;
+                }
+                if (c + 1 < _heapSize
+                    && _dist[_heap[c + 1]] < _dist[_heap[c]]) {
+                    c += 1;
+                }
+                if (_dist[v] <= _dist[_heap[c]]) {
+                    break;
+                }
+                place(_heap[c], i);
+                i = c;
+            }
+            place(v, i);
+        }
+        return top;
+    }
+
+    /** Put V at position I of the heap. */
+    private void place(int v, int i) {
+        _heap[i] = v;
+        _heapPos[v] = i;
+    }
+
+    /** Distance to an unreachable vertex. */
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    /** The graph searched. */
+    private final Graph _G;
+    /** The graph holding my graph's stored weights, or null. */
+    private final WeightedDirectedGraph _weighted;
+    /** True iff getWeight(U, V) is known to give the stored weights, so
+     *  they may be read directly. */
+    private final boolean _stored;
+    /** The source vertex. */
+    private final int _source;
+    /** Distance of each vertex from the source. */
+    private final double[] _dist;
+    /** Predecessor of each vertex in the tree, or 0. */
+    private final int[] _pred;
+    /** Marks the subtree being rebuilt. */
+    private final boolean[] _affected;
+    /** Binary heap of queued vertices, ordered by _dist. */
+    private final int[] _heap;
+    /** Position of each vertex in _heap, or -1. */
+    private final int[] _heapPos;
+    /** Number of queued vertices. */
+    private int _heapSize;
+    /** Scratch space for rebuild. */
+    private final int[] _stack;
+    /** Number of vertices recomputed by the last update. */
+    private int _repaired;
+}
@@ -0,0 +1,289 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/** Converts a text edge list into the binary graph format read by
+ *  GraphIO.read, without ever holding the edges in memory.  The input
+ *  consists of pairs of positive vertex numbers "U V", one edge per line;
+ *  blank lines and text from '#' to the end of a line are ignored.  The
+ *  resulting graph has vertices 1 through the largest number mentioned,
+ *  and one edge for each distinct pair (for an undirected graph, each
+ *  distinct unordered pair).  Edge ids are assigned in increasing order of
+ *  (U, V) (for undirected graphs, with U <= V).
+ *
+ *  Edges are sorted externally (see ExternalSorter) in chunks of a given
+ *  size, so memory use is proportional to the chunk size plus the number
+ *  of vertices, whatever the number of edges.
+ *  @author Yuhan Xie
+ */
+public class EdgeListImporter {
+
+    /** An importer that sorts CHUNK edges at a time in memory and keeps
+     *  its temporary files in the directory named TEMPDIR. */
+    public EdgeListImporter(int chunk, String tempDir) {
+        _chunk = chunk;
+        _tempDir = Paths.get(tempDir);
+    }
+
+    /** An importer that sorts a default-sized chunk of edges at a time,
+     *  keeping temporary files in the system temporary directory. */
+    public EdgeListImporter() {
+        this(DEFAULT_CHUNK, System.getProperty("java.io.tmpdir"));
+    }
+
+    /** Read the edge list in the file named EDGELIST and write the
+     *  resulting graph, directed iff DIRECTED, to the file named GRAPHFILE.
+     *  Throws IllegalArgumentException if the input is malformed or a file
+     *  cannot be read or written. */
+    public void convert(String edgeList, String graphFile, boolean directed) {
+        Path targets = null, ids = null, sources = null;
+        try (ExternalSorter edges = new ExternalSorter(_tempDir, _chunk);
+             ExternalSorter arcs = new ExternalSorter(_tempDir, _chunk)) {
+            int maxVertex = readEdges(edgeList, edges, directed);
+            edges.finish();
+
+            targets = Files.createTempFile(_tempDir, "targets", ".tmp");
+            ids = Files.createTempFile(_tempDir, "ids", ".tmp");
+            int[] outStart = new int[maxVertex + 2];
+            int[] inStart = new int[directed ? maxVertex + 2 : 0];
+            int edgeCount;
+
+            try (GraphFormat.Writer t = tempWriter(targets);
+                 GraphFormat.Writer d = tempWriter(ids)) {
+                edgeCount = 0;
+                long last = -1;
+                while (edges.next()) {
+                    long key = edges.key();
+                    if (key == last) {
+                        continue;
+                    }
+                    last = key;
+                    edgeCount += 1;
+                    int u = (int) (key >>> 32), v = (int) key;
+                    if (directed) {
+                        outStart[u + 1] += 1;
+                        t.putInt(v);
+                        d.putInt(edgeCount);
+                        inStart[v + 1] += 1;
+                        arcs.add(key(v, u), 0);
+                    } else {
+                        arcs.add(key, edgeCount);
+                        if (u != v) {
+                            arcs.add(key(v, u), edgeCount);
+                        }
+                    }
+                }
+                arcs.finish();
+                if (!directed) {
+                    while (arcs.next()) {
+                        outStart[(int) (arcs.key() >>> 32) + 1] += 1;
+                        t.putInt((int) arcs.key());
+                        d.putInt((int) arcs.value());
+                    }
+                }
+            }
+            if (directed) {
+                sources = Files.createTempFile(_tempDir, "sources", ".tmp");
+                try (GraphFormat.Writer s = tempWriter(sources)) {
+                    while (arcs.next()) {
+                        s.putInt((int) arcs.key());
+                    }
+                }
+            }
+            int arcCount = prefixSums(outStart);
+            if (directed) {
+                prefixSums(inStart);
+            }
+            assemble(graphFile, directed, maxVertex, edgeCount, arcCount,
+                     outStart, inStart, targets, ids, sources);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(
+                String.format("could not convert %s to %s: %s", edgeList,
+                              graphFile, excp.getMessage()));
+        } finally {
+            delete(targets);
+            delete(ids);
+            delete(sources);
+        }
+    }
+
+    /** Read the edges in the file named NAME into SORTER, keyed by their
+     *  end points (smaller end first unless DIRECTED).  Returns the largest
+     *  vertex number seen. */
+    private int readEdges(String name, ExternalSorter sorter,
+                          boolean directed) throws IOException {
+        int maxVertex;
+        maxVertex = 0;
+        try (InputStream in = new BufferedInputStream(
+                 Files.newInputStream(Paths.get(name)), BUFFER_SIZE)) {
+            _in = in;
+            _line = 1;
+            while (true) {
+                int u = nextVertex(true);
+                if (u == 0) {
+                    break;
+                }
+                int v = nextVertex(false);
+                maxVertex = Math.max(maxVertex, Math.max(u, v));
+                if (directed || u <= v) {
+                    sorter.add(key(u, v), 0);
+                } else {
+                    sorter.add(key(v, u), 0);
+                }
+            }
+        } finally {
+            _in = null;
+        }
+        return maxVertex;
+    }
+
+    /** Returns the next vertex number from _in, skipping white space and
+     *  comments.  At end of input, returns 0 if EOFOK, and otherwise
+     *  signals an error. */
+    private int nextVertex(boolean eofOk) throws IOException {
+        int c = _in.read();
+        while (true) {
+            if (c == '#') {
+                while (c != '\n' && c != -1) {
+                    c = _in.read();
+                }
+            } else if (c == '\n') {
+                _line += 1;
+                c = _in.read();
+            } else if (Character.isWhitespace(c)) {
+                c = _in.read();
+            } else {
+                break;
+            }
+        }
+        if (c == -1) {
+            if (eofOk) {
+                return 0;
+            }
+            throw new IllegalArgumentException(
+                String.format("incomplete edge at line %d", _line));
+        }
+        long v;
+        v = 0;
+        while (c >= '0' && c <= '9') {
+            v = 10 * v + (c - '0');
+            if (v > Integer.MAX_VALUE - 1) {
+                break;
+            }
+            c = _in.read();
+        }
+        if (v == 0 || v > Integer.MAX_VALUE - 1
+            || (c != -1 && !Character.isWhitespace(c) && c != '#')) {
+            throw new IllegalArgumentException(
+                String.format("bad vertex number at line %d", _line));
+        }
+        if (c == '\n') {
+            _line += 1;
+        } else if (c == '#') {
+            while (c != '\n' && c != -1) {
+                c = _in.read();
+            }
+            _line += c == '\n' ? 1 : 0;
+        }
+        return (int) v;
+    }
+
+    /** Write the graph file GRAPHFILE from its parts: whether it is
+     *  DIRECTED, its MAXVERTEX, EDGECOUNT, and ARCCOUNT, the start arrays
+     *  OUTSTART and INSTART (if DIRECTED), and the files TARGETS, IDS, and
+     *  SOURCES (if DIRECTED) holding the contents of the remaining
+     *  sections. */
+    private void assemble(String graphFile, boolean directed, int maxVertex,
+                          int edgeCount, int arcCount, int[] outStart,
+                          int[] inStart, Path targets, Path ids,
+                          Path sources) throws IOException {
+        try (GraphFormat.Writer w = new GraphFormat.Writer(
+                 FileChannel.open(Paths.get(graphFile),
+                                  WRITE, CREATE, TRUNCATE_EXISTING)
+                 .position(GraphFormat.HEADER_BYTES))) {
+            w.startSection(GraphFormat.LIVE);
+            long[] live = new long[GraphFormat.bitmapLongs(maxVertex)];
+            Arrays.fill(live, -1L);
+            live[0] &= ~1L;
+            live[live.length - 1] &= -1L >>> (63 - (maxVertex & 63));
+            for (long bits : live) {
+                w.putLong(bits);
+            }
+            w.startSection(GraphFormat.OUT_START);
+            w.putInts(outStart, outStart.length);
+            w.startSection(GraphFormat.OUT_TARGET);
+            w.copy(targets);
+            w.startSection(GraphFormat.OUT_ID);
+            w.copy(ids);
+            if (directed) {
+                w.startSection(GraphFormat.IN_START);
+                w.putInts(inStart, inStart.length);
+                w.startSection(GraphFormat.IN_SOURCE);
+                w.copy(sources);
+            }
+            w.finish(new int[] {
+                GraphFormat.MAGIC, GraphFormat.VERSION,
+                directed ? GraphFormat.DIRECTED : 0, maxVertex, maxVertex,
+                edgeCount, arcCount, edgeCount
+            });
+        }
+    }
+
+    /** Returns a Writer for the temporary file FILE. */
+    private static GraphFormat.Writer tempWriter(Path file)
+        throws IOException {
+        return new GraphFormat.Writer(FileChannel.open(file, WRITE));
+    }
+
+    /** Replace the counts in A[1 ..] by their running sums, and return
+     *  the total. */
+    private static int prefixSums(int[] a) {
+        for (int i = 1; i < a.length; i += 1) {
+            a[i] += a[i - 1];
+        }
+        return a[a.length - 1];
+    }
+
+    /** Returns U and V packed into a key that sorts by U and then V. */
+    private static long key(int u, int v) {
+        return ((long) u << 32) | v;
+    }
+
+    /** Delete FILE, if it is not null and exists. */
+    private static void delete(Path file) {
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException excp) {
+            /* Ignore: it's only a temporary file. */
+        }
+    }
+
+    /** Default number of edges sorted in memory at once. */
+    static final int DEFAULT_CHUNK = 1 << 22;
+    /** Size of the input buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Number of edges sorted in memory at once. */
+    private final int _chunk;
+    /** Directory for temporary files. */
+    private final Path _tempDir;
+    /** Input being read by readEdges. */
+    private InputStream _in;
+    /** Current input line number. */
+    private int _line;
+}
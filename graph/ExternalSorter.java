@@ -0,0 +1,285 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** Sorts an arbitrarily long sequence of (key, value) pairs of longs, in
+ *  increasing order of key and then value, using a bounded amount of
+ *  memory.  Pairs are collected in fixed-size chunks; each full chunk is
+ *  sorted and written to a temporary run file.  If there are more than
+ *  FAN_IN runs, groups of FAN_IN are merged into longer runs until there
+ *  are not, so that only FAN_IN files are ever open at once; the last
+ *  runs are merged as the result is read.  Typical use:
+ *      try (ExternalSorter s = new ExternalSorter(dir, 1 << 20)) {
+ *          ... s.add(k, v) ...
+ *          s.finish();
+ *          while (s.next()) {
+ *              ... s.key(), s.value() ...
+ *          }
+ *      }
+ *  @author Yuhan Xie
+ */
+class ExternalSorter implements AutoCloseable {
+
+    /** Largest number of runs merged at once. */
+    static final int FAN_IN = 64;
+
+    /** A sorter that keeps at most CHUNK pairs in memory at once, and
+     *  puts temporary files in directory DIR. */
+    ExternalSorter(Path dir, int chunk) {
+        _dir = dir;
+        _keys = new long[chunk];
+        _values = new long[chunk];
+    }
+
+    /** Add the pair (KEY, VALUE).  Must precede finish. */
+    void add(long key, long value) throws IOException {
+        if (_n == _keys.length) {
+            spill();
+        }
+        _keys[_n] = key;
+        _values[_n] = value;
+        _n += 1;
+    }
+
+    /** End input, and prepare to deliver the pairs in order. */
+    void finish() throws IOException {
+        if (_runs.isEmpty()) {
+            sort(_keys, _values, _n);
+            _pos = -1;
+            return;
+        }
+        spill();
+        _keys = _values = null;
+        while (_runs.size() > FAN_IN) {
+            List<Path> group = new ArrayList<>(_runs.subList(0, FAN_IN));
+            merge(group);
+            _runs.subList(0, FAN_IN).clear();
+        }
+        for (Path run : _runs) {
+            Run r = new Run(run);
+            if (r.advance()) {
+                _merge.add(r);
+            } else {
+                r.close();
+            }
+        }
+    }
+
+    /** Advance to the next pair in order, returning false if there are no
+     *  more. */
+    boolean next() throws IOException {
+        if (_keys != null) {
+            _pos += 1;
+            if (_pos >= _n) {
+                return false;
+            }
+            _key = _keys[_pos];
+            _value = _values[_pos];
+            return true;
+        }
+        if (_current != null) {
+            if (_current.advance()) {
+                _merge.add(_current);
+            } else {
+                _current.close();
+            }
+        }
+        _current = _merge.poll();
+        if (_current == null) {
+            return false;
+        }
+        _key = _current._key;
+        _value = _current._value;
+        return true;
+    }
+
+    /** Returns the key of the current pair. */
+    long key() {
+        return _key;
+    }
+
+    /** Returns the value of the current pair. */
+    long value() {
+        return _value;
+    }
+
+    /** Returns the number of runs spilled from memory. */
+    int runs() {
+        return _spills;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_current != null) {
+            _current.close();
+        }
+        for (Run r : _merge) {
+            r.close();
+        }
+        for (Path run : _runs) {
+            Files.deleteIfExists(run);
+        }
+    }
+
+    /** Sort the buffered pairs and write them out as a new run. */
+    private void spill() throws IOException {
+        sort(_keys, _values, _n);
+        try (DataOutputStream out = newRun()) {
+            for (int i = 0; i < _n; i += 1) {
+                out.writeLong(_keys[i]);
+                out.writeLong(_values[i]);
+            }
+        }
+        _n = 0;
+        _spills += 1;
+    }
+
+    /** Merge the runs in GROUP, which must be at the front of _runs, into
+     *  a new run at the end of _runs, and delete their files. */
+    private void merge(List<Path> group) throws IOException {
+        ArrayList<Run> opened = new ArrayList<>();
+        try (DataOutputStream out = newRun()) {
+            PriorityQueue<Run> queue = new PriorityQueue<>();
+            for (Path run : group) {
+                Run r = new Run(run);
+                opened.add(r);
+                if (r.advance()) {
+                    queue.add(r);
+                }
+            }
+            for (Run r = queue.poll(); r != null; r = queue.poll()) {
+                out.writeLong(r._key);
+                out.writeLong(r._value);
+                if (r.advance()) {
+                    queue.add(r);
+                }
+            }
+        } finally {
+            for (Run r : opened) {
+                r.close();
+            }
+        }
+        for (Path run : group) {
+            Files.delete(run);
+        }
+    }
+
+    /** Returns a stream writing to a new, empty run file, added to the end
+     *  of _runs. */
+    private DataOutputStream newRun() throws IOException {
+        Path run = Files.createTempFile(_dir, "run", ".tmp");
+        _runs.add(run);
+        return new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(run),
+                                     BUFFER_SIZE));
+    }
+
+    /** Sort the first N entries of KEYS and VALUES together, by key and
+     *  then value (a bottom-up merge sort). */
+    static void sort(long[] keys, long[] values, int n) {
+        long[] k1 = keys, v1 = values;
+        long[] k2 = new long[n], v2 = new long[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n),
+                    hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid;
+                for (int k = lo; k < hi; k += 1) {
+                    if (j >= hi
+                        || (i < mid && (k1[i] < k1[j]
+                                        || k1[i] == k1[j]
+                                           && v1[i] <= v1[j]))) {
+                        k2[k] = k1[i];
+                        v2[k] = v1[i];
+                        i += 1;
+                    } else {
+                        k2[k] = k1[j];
+                        v2[k] = v1[j];
+                        j += 1;
+                    }
+                }
+            }
+            long[] t = k1;
+            k1 = k2;
+            k2 = t;
+            t = v1;
+            v1 = v2;
+            v2 = t;
+        }
+        if (k1 != keys) {
+            System.arraycopy(k1, 0, keys, 0, n);
+            System.arraycopy(v1, 0, values, 0, n);
+        }
+    }
+
+    /** A sorted run being merged. */
+    private static class Run implements Comparable<Run> {
+        /** A reader for the run in FILE. */
+        Run(Path file) throws IOException {
+            _in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file),
+                                        BUFFER_SIZE));
+        }
+
+        /** Read the next pair, returning false at end of file. */
+        boolean advance() throws IOException {
+            try {
+                _key = _in.readLong();
+                _value = _in.readLong();
+                return true;
+            } catch (EOFException excp) {
+                return false;
+            }
+        }
+
+        /** Release my file. */
+        void close() throws IOException {
+            _in.close();
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            int c = Long.compare(_key, other._key);
+            return c != 0 ? c : Long.compare(_value, other._value);
+        }
+
+        /** Source of pairs. */
+        private final DataInputStream _in;
+        /** Current pair. */
+        private long _key, _value;
+    }
+
+    /** Size of file buffers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Directory for run files. */
+    private final Path _dir;
+    /** Buffered pairs, or null once merging runs. */
+    private long[] _keys, _values;
+    /** Number of buffered pairs. */
+    private int _n;
+    /** Position in the buffered pairs when there are no runs. */
+    private int _pos;
+    /** Run files not yet merged away, oldest first. */
+    private final ArrayList<Path> _runs = new ArrayList<>();
+    /** Number of runs spilled from memory. */
+    private int _spills;
+    /** Runs with pairs remaining, other than _current. */
+    private final PriorityQueue<Run> _merge = new PriorityQueue<>();
+    /** Run that supplied the current pair. */
+    private Run _current;
+    /** Current pair. */
+    private long _key, _value;
+}
@@ -115,4 +115,32 @@ public abstract class Graph {
      *  returned by add(u, v). */
     protected abstract int edgeId(int u, int v);
 
+    /** Returns the edgeId of each of my edges, in the order returned by
+     *  edges().  The default calls edgeId once per edge; graphs with a
+     *  cheaper way to number all their edges at once override it. */
+    int[] edgeIds() {
+        int[] ids = new int[edgeSize()];
+        int k;
+        k = 0;
+        for (int[] e : edges()) {
+            ids[k] = edgeId(e[0], e[1]);
+            k += 1;
+        }
+        return ids;
+    }
+
+    /** Returns a number that changes whenever my vertices or edges change,
+     *  allowing clients to tell when information cached about me is out of
+     *  date, or -1 if I do not keep track, in which case no such cache is
+     *  ever valid. */
+    int version() {
+        return -1;
+    }
+
+    /** Returns the WeightedDirectedGraph whose vertices, edges, and edge
+     *  weights are exactly mine, or null if there is none. */
+    WeightedDirectedGraph weighted() {
+        return null;
+    }
+
 }
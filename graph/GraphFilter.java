@@ -96,11 +96,24 @@ public class GraphFilter extends Graph {
         return _G.edgeId(u, v);
     }
 
+    @Override
+    int[] edgeIds() {
+        return _G.edgeIds();
+    }
+
     @Override
     protected void checkMyVertex(int v) {
         _G.checkMyVertex(v);
     }
 
+    /** Returns the Graph to which I delegate.  Since a subtype may hide
+     *  some of its vertices or edges, version() and weighted() are not
+     *  delegated by default; subtypes that show exactly its vertices and
+     *  edges may delegate them through this. */
+    final Graph delegate() {
+        return _G;
+    }
+
     /** My underlying graph. */
     private final Graph _G;
 }
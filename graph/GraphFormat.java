@@ -0,0 +1,198 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/** Layout of the binary graph files written by GraphIO and read by
+ *  MappedGraph.  All numbers are little-endian.  A file consists of
+ *
+ *    A header of HEADER_INTS ints: MAGIC, VERSION, flags (a combination of
+ *        DIRECTED, VERTEX_LABELS, and EDGE_LABELS), maximum vertex number
+ *        M, vertex count, edge count, arc count A (the number of entries in
+ *        the successor lists; twice the number of non-self edges for an
+ *        undirected graph), and maximum edge id I; followed by SECTIONS
+ *        longs giving the file offset of each section below, or -1 if the
+ *        section is absent.
+ *    LIVE: a bitmap of (M + 64) / 64 longs; bit V is set iff V is a
+ *        vertex.
+ *    OUT_START: M + 2 ints; the successors of V are entries OUT_START[V]
+ *        through OUT_START[V + 1] - 1 of OUT_TARGET and OUT_ID.
+ *    OUT_TARGET: A ints, the successor lists, each in increasing order.
+ *    OUT_ID: A ints, the edge id of each entry of OUT_TARGET.
+ *    IN_START, IN_SOURCE: the predecessor lists, laid out as for OUT_START
+ *        and OUT_TARGET (directed graphs only).
+ *    VLABEL_START, VLABEL_BYTES: if VERTEX_LABELS, the label of vertex V is
+ *        the UTF-8 text in bytes VLABEL_START[V] through
+ *        VLABEL_START[V + 1] - 1 of VLABEL_BYTES (M + 2 ints), empty for
+ *        no label.
+ *    ELABEL_START, ELABEL_BYTES: likewise for edge labels, indexed by edge
+ *        id (I + 2 ints).
+ *
+ *  Each section starts on an 8-byte boundary.
+ *  @author Yuhan Xie
+ */
+final class GraphFormat {
+
+    /** Identifies a graph file ("G61B"). */
+    static final int MAGIC = 0x42313647;
+    /** The format version written. */
+    static final int VERSION = 1;
+
+    /** Flag: the graph is directed. */
+    static final int DIRECTED = 1;
+    /** Flag: the file has vertex labels. */
+    static final int VERTEX_LABELS = 2;
+    /** Flag: the file has edge labels. */
+    static final int EDGE_LABELS = 4;
+
+    /** Indices of header fields. */
+    static final int H_MAGIC = 0, H_VERSION = 1, H_FLAGS = 2,
+        H_MAX_VERTEX = 3, H_VERTICES = 4, H_EDGES = 5, H_ARCS = 6,
+        H_MAX_EDGE_ID = 7;
+    /** Number of ints at the beginning of the header. */
+    static final int HEADER_INTS = 8;
+
+    /** Indices of sections in the header's offset table. */
+    static final int LIVE = 0, OUT_START = 1, OUT_TARGET = 2, OUT_ID = 3,
+        IN_START = 4, IN_SOURCE = 5, VLABEL_START = 6, VLABEL_BYTES = 7,
+        ELABEL_START = 8, ELABEL_BYTES = 9;
+    /** Number of sections. */
+    static final int SECTIONS = 10;
+
+    /** Size of the header in bytes. */
+    static final int HEADER_BYTES = 4 * HEADER_INTS + 8 * SECTIONS;
+
+    /** Returns the number of longs in the liveness bitmap for maximum
+     *  vertex MAXVERTEX. */
+    static int bitmapLongs(int maxVertex) {
+        return (maxVertex + 64) / 64;
+    }
+
+    /** Writes sections of a graph file sequentially through a buffer. */
+    static class Writer implements AutoCloseable {
+
+        /** A Writer appending to OUT, which is positioned just after
+         *  space reserved for the header. */
+        Writer(FileChannel out) throws IOException {
+            _out = out;
+            _buf = ByteBuffer.allocate(BUFFER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            _position = out.position();
+            _offsets = new long[SECTIONS];
+            Arrays.fill(_offsets, -1);
+        }
+
+        /** Pad to an 8-byte boundary and note that section SECTION starts
+         *  here. */
+        void startSection(int section) throws IOException {
+            while (_position % 8 != 0) {
+                putByte((byte) 0);
+            }
+            _offsets[section] = _position;
+        }
+
+        /** Append X. */
+        void putInt(int x) throws IOException {
+            room(4);
+            _buf.putInt(x);
+            _position += 4;
+        }
+
+        /** Append X. */
+        void putLong(long x) throws IOException {
+            room(8);
+            _buf.putLong(x);
+            _position += 8;
+        }
+
+        /** Append B. */
+        void putByte(byte b) throws IOException {
+            room(1);
+            _buf.put(b);
+            _position += 1;
+        }
+
+        /** Append A[0 .. N-1]. */
+        void putInts(int[] a, int n) throws IOException {
+            for (int i = 0; i < n; i += 1) {
+                putInt(a[i]);
+            }
+        }
+
+        /** Append A[0 .. N-1]. */
+        void putBytes(byte[] a, int n) throws IOException {
+            for (int i = 0; i < n; i += 1) {
+                putByte(a[i]);
+            }
+        }
+
+        /** Flush my buffer, then write the header containing the HEADER
+         *  ints followed by my section offsets at the start of the file. */
+        void finish(int[] header) throws IOException {
+            flush();
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            for (int x : header) {
+                head.putInt(x);
+            }
+            for (long off : _offsets) {
+                head.putLong(off);
+            }
+            head.flip();
+            _out.write(head, 0);
+        }
+
+        /** Append the entire contents of FILE. */
+        void copy(Path file) throws IOException {
+            flush();
+            try (FileChannel in = FileChannel.open(file)) {
+                long size = in.size();
+                for (long done = 0; done < size; ) {
+                    done += in.transferTo(done, size - done, _out);
+                }
+                _position += size;
+            }
+        }
+
+        /** Write out any buffered data and close my file. */
+        @Override
+        public void close() throws IOException {
+            flush();
+            _out.close();
+        }
+
+        /** Make sure my buffer has room for N more bytes. */
+        private void room(int n) throws IOException {
+            if (_buf.remaining() < n) {
+                flush();
+            }
+        }
+
+        /** Write out my buffer. */
+        private void flush() throws IOException {
+            _buf.flip();
+            while (_buf.hasRemaining()) {
+                _out.write(_buf);
+            }
+            _buf.clear();
+        }
+
+        /** Size of the staging buffer. */
+        private static final int BUFFER_SIZE = 1 << 16;
+        /** Destination. */
+        private final FileChannel _out;
+        /** Staging buffer. */
+        private final ByteBuffer _buf;
+        /** File offset of the next byte appended. */
+        private long _position;
+        /** Offsets of the sections written so far. */
+        private final long[] _offsets;
+    }
+
+}
@@ -0,0 +1,195 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/** Saving graphs in a compact binary form (described in GraphFormat) and
+ *  loading them again as read-only, memory-mapped MappedGraphs.  Loading
+ *  takes time independent of the size of the graph, since the file's
+ *  adjacency arrays are used in place.
+ *  @author Yuhan Xie
+ */
+public final class GraphIO {
+
+    /** Not instantiable. */
+    private GraphIO() {
+    }
+
+    /** Write G to the file named FILENAME, including its vertex and edge
+     *  labels (converted with String.valueOf) if G is a LabeledGraph.  Edge
+     *  ids are preserved.  Throws IllegalArgumentException if the file
+     *  cannot be written. */
+    public static void write(Graph G, String fileName) {
+        int maxVertex = G.maxVertex();
+        boolean directed = G.isDirected();
+        int[] start = new int[maxVertex + 2];
+        int[] inStart = new int[maxVertex + 2];
+        int[] ids = G.edgeIds();
+        int arcs, maxId, edges;
+        arcs = maxId = edges = 0;
+        for (int[] e : G.edges()) {
+            int id = ids[edges];
+            maxId = Math.max(maxId, id);
+            edges += 1;
+            start[e[0] + 1] += 1;
+            arcs += 1;
+            if (directed) {
+                inStart[e[1] + 1] += 1;
+            } else if (e[0] != e[1]) {
+                start[e[1] + 1] += 1;
+                arcs += 1;
+            }
+        }
+        for (int v = 1; v <= maxVertex + 1; v += 1) {
+            start[v] += start[v - 1];
+            inStart[v] += inStart[v - 1];
+        }
+        long[] out = new long[arcs];
+        int[] in = new int[directed ? arcs : 0];
+        int[] fill = Arrays.copyOf(start, start.length);
+        int[] inFill = Arrays.copyOf(inStart, inStart.length);
+        int k;
+        k = 0;
+        for (int[] e : G.edges()) {
+            int u = e[0], v = e[1], id = ids[k];
+            k += 1;
+            out[fill[u]++] = pack(v, id);
+            if (directed) {
+                in[inFill[v]++] = u;
+            } else if (u != v) {
+                out[fill[v]++] = pack(u, id);
+            }
+        }
+        for (int v = 0; v <= maxVertex; v += 1) {
+            Arrays.sort(out, start[v], start[v + 1]);
+            if (directed) {
+                Arrays.sort(in, inStart[v], inStart[v + 1]);
+            }
+        }
+
+        int flags = directed ? GraphFormat.DIRECTED : 0;
+        LabeledGraph<?, ?> labeled =
+            G instanceof LabeledGraph ? (LabeledGraph<?, ?>) G : null;
+        if (labeled != null) {
+            flags |= GraphFormat.VERTEX_LABELS | GraphFormat.EDGE_LABELS;
+        }
+
+        try (GraphFormat.Writer w = new GraphFormat.Writer(
+                 FileChannel.open(Paths.get(fileName),
+                                  WRITE, CREATE, TRUNCATE_EXISTING)
+                 .position(GraphFormat.HEADER_BYTES))) {
+            w.startSection(GraphFormat.LIVE);
+            long[] live = new long[GraphFormat.bitmapLongs(maxVertex)];
+            for (int v : G.vertices()) {
+                live[v >>> 6] |= 1L << v;
+            }
+            for (long bits : live) {
+                w.putLong(bits);
+            }
+            w.startSection(GraphFormat.OUT_START);
+            w.putInts(start, start.length);
+            w.startSection(GraphFormat.OUT_TARGET);
+            for (long arc : out) {
+                w.putInt((int) (arc >>> 32));
+            }
+            w.startSection(GraphFormat.OUT_ID);
+            for (long arc : out) {
+                w.putInt((int) arc);
+            }
+            if (directed) {
+                w.startSection(GraphFormat.IN_START);
+                w.putInts(inStart, inStart.length);
+                w.startSection(GraphFormat.IN_SOURCE);
+                w.putInts(in, in.length);
+            }
+            if (labeled != null) {
+                writeVertexLabels(w, labeled, maxVertex);
+                writeEdgeLabels(w, labeled, ids, maxId);
+            }
+            w.finish(new int[] {
+                GraphFormat.MAGIC, GraphFormat.VERSION, flags, maxVertex,
+                G.vertexSize(), edges, arcs, maxId
+            });
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(
+                String.format("could not write %s: %s", fileName,
+                              excp.getMessage()));
+        }
+    }
+
+    /** Returns the graph stored in the file named FILENAME, which must
+     *  have been written by write or by EdgeListImporter.  Throws
+     *  IllegalArgumentException if the file cannot be read or is not a
+     *  graph file. */
+    public static MappedGraph read(String fileName) {
+        return new MappedGraph(fileName);
+    }
+
+    /** Returns V and ID packed into a long that sorts by V. */
+    static long pack(int v, int id) {
+        return ((long) v << 32) | (id & 0xffffffffL);
+    }
+
+    /** Write the vertex label sections for G, whose maximum vertex is
+     *  MAXVERTEX, to W. */
+    private static void writeVertexLabels(GraphFormat.Writer w,
+                                          LabeledGraph<?, ?> G,
+                                          int maxVertex) throws IOException {
+        byte[][] text = new byte[maxVertex + 1][];
+        for (int v : G.vertices()) {
+            text[v] = encode(G.getLabel(v));
+        }
+        writeLabels(w, text, GraphFormat.VLABEL_START,
+                    GraphFormat.VLABEL_BYTES);
+    }
+
+    /** Write the edge label sections for G, whose edge ids are IDS and
+     *  whose maximum edge id is MAXID, to W. */
+    private static void writeEdgeLabels(GraphFormat.Writer w,
+                                        LabeledGraph<?, ?> G, int[] ids,
+                                        int maxId) throws IOException {
+        byte[][] text = new byte[maxId + 1][];
+        for (int id : ids) {
+            text[id] = encode(G.edgeLabel(id));
+        }
+        writeLabels(w, text, GraphFormat.ELABEL_START,
+                    GraphFormat.ELABEL_BYTES);
+    }
+
+    /** Write TEXT (with null for no label) to W as sections STARTSECTION,
+     *  holding TEXT.length + 1 offsets, and BYTESSECTION. */
+    private static void writeLabels(GraphFormat.Writer w, byte[][] text,
+                                    int startSection, int bytesSection)
+        throws IOException {
+        w.startSection(startSection);
+        int pos;
+        pos = 0;
+        w.putInt(0);
+        for (byte[] t : text) {
+            pos += t == null ? 0 : t.length;
+            w.putInt(pos);
+        }
+        w.startSection(bytesSection);
+        for (byte[] t : text) {
+            if (t != null) {
+                w.putBytes(t, t.length);
+            }
+        }
+    }
+
+    /** Returns LABEL as UTF-8, or null if it is null. */
+    private static byte[] encode(Object label) {
+        return label == null
+            ? null : String.valueOf(label).getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -34,6 +34,9 @@ abstract class GraphObj extends Graph {
     /** EdgeList. */
     private ArrayList<Pair> edgeList;
 
+    /** Number of modifications made to me. */
+    private int _version;
+
 
     /**
      * A new, empty Graph.
@@ -107,13 +110,12 @@ abstract class GraphObj extends Graph {
 
     @Override
     public int maxVertex() {
-        int max = 0;
-        for (int i = 1; i < inListArray.size(); i++) {
+        for (int i = inListArray.size() - 1; i > 0; i--) {
             if (inListArray.get(i) != null) {
-                max = i;
+                return i;
             }
         }
-        return max;
+        return 0;
     }
 
     @Override
@@ -136,7 +138,8 @@ abstract class GraphObj extends Graph {
 
     @Override
     public boolean contains(int u) {
-        return u <= maxVertex() && (inListArray.get(u) != null);
+        return u > 0 && u < inListArray.size()
+            && inListArray.get(u) != null;
     }
 
     @Override
@@ -176,6 +179,7 @@ abstract class GraphObj extends Graph {
             outListArray.set(firstNull, new LinkedList<>());
         }
         this._V += 1;
+        this._version += 1;
         return firstNull;
     }
 
@@ -193,6 +197,7 @@ abstract class GraphObj extends Graph {
         }
         Pair edge = new Pair(u, v);
         this._E += 1;
+        this._version += 1;
         edgeList.add(edge);
         return edgeId(u, v);
     }
@@ -215,6 +220,7 @@ abstract class GraphObj extends Graph {
         inListArray.set(v, null);
         outListArray.set(v, null);
         this._V -= 1;
+        this._version += 1;
     }
 
     @Override
@@ -225,6 +231,7 @@ abstract class GraphObj extends Graph {
         Pair remove = new Pair(u, v);
         edgeList.set(edgeList.indexOf(remove), null);
         this._E -= 1;
+        this._version += 1;
         if (u == v) {
             selfEdges.set(u, 0);
         } else {
@@ -242,7 +249,7 @@ abstract class GraphObj extends Graph {
 
             @Override
             public boolean hasNext() {
-                for (int i = position + 1; i <= maxVertex(); i++) {
+                for (int i = position + 1; i < inListArray.size(); i++) {
                     if (inListArray.get(i) != null) {
                         return true;
                     }
@@ -276,10 +283,10 @@ abstract class GraphObj extends Graph {
         }
         Iteration<Integer> iterator = new Iteration<>() {
             private boolean selfEdge = selfEdges.get(v) == 1;
-            private int position = 0;
+            private Iterator<Integer> rest = inListArray.get(v).iterator();
             @Override
             public boolean hasNext() {
-                return inListArray.get(v).size() > position || selfEdge;
+                return rest.hasNext() || selfEdge;
             }
 
             public Integer next() {
@@ -287,9 +294,7 @@ abstract class GraphObj extends Graph {
                     selfEdge = false;
                     return v;
                 }
-                int result = inListArray.get(v).get(position);
-                position++;
-                return result;
+                return rest.next();
             }
         };
         return iterator;
@@ -334,6 +339,11 @@ abstract class GraphObj extends Graph {
     protected void checkMyVertex(int v) {
     }
 
+    @Override
+    int version() {
+        return _version;
+    }
+
     @Override
     protected int edgeId(int u, int v) {
         int id = edgeList.indexOf(new Pair(u, v));
@@ -342,4 +352,18 @@ abstract class GraphObj extends Graph {
         }
         throw new Error("No such edge.");
     }
+
+    @Override
+    int[] edgeIds() {
+        int[] ids = new int[edgeSize()];
+        int k;
+        k = 0;
+        for (int i = 1; i < edgeList.size(); i++) {
+            if (edgeList.get(i) != null) {
+                ids[k] = i;
+                k++;
+            }
+        }
+        return ids;
+    }
 }
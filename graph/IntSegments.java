@@ -0,0 +1,102 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+/** A growable array of ints held outside the Java heap, in direct
+ *  buffers.  The array is a sequence of segments, each twice the size of
+ *  the last up to a maximum segment size, so growing it never copies
+ *  existing contents and the number of segments stays logarithmic until
+ *  it is very large.  Entries not yet set are 0.
+ *  @author Yuhan Xie
+ */
+final class IntSegments {
+
+    /** An empty array whose first segment holds FIRST ints and whose
+     *  segments hold at most MAX ints (powers of 2 with FIRST <= MAX). */
+    IntSegments(int first, int max) {
+        _firstShift = Integer.numberOfTrailingZeros(first);
+        _maxShift = Integer.numberOfTrailingZeros(max);
+        _doublings = _maxShift - _firstShift;
+        _geometricSize = (long) first * ((1L << (_doublings + 1)) - 1);
+    }
+
+    /** An empty array with the default segment sizes. */
+    IntSegments() {
+        this(FIRST_SEGMENT, MAX_SEGMENT);
+    }
+
+    /** Returns the number of entries I can hold without growing. */
+    long capacity() {
+        return _capacity;
+    }
+
+    /** Make sure that I can hold at least N entries. */
+    void ensure(long n) {
+        while (_capacity < n) {
+            int k = _segments.size();
+            int shift = Math.min(_firstShift + k, _maxShift);
+            _segments.add(ByteBuffer.allocateDirect(4 << shift)
+                          .order(ByteOrder.nativeOrder()).asIntBuffer());
+            _capacity += 1L << shift;
+        }
+    }
+
+    /** Returns entry I, which must be less than capacity(). */
+    int get(long i) {
+        int k = segment(i);
+        return _segments.get(k).get(offset(i, k));
+    }
+
+    /** Set entry I, which must be less than capacity(), to X. */
+    void set(long i, int x) {
+        int k = segment(i);
+        _segments.get(k).put(offset(i, k), x);
+    }
+
+    /** Add D to entry I, which must be less than capacity(). */
+    void add(long i, int d) {
+        int k = segment(i);
+        IntBuffer seg = _segments.get(k);
+        int j = offset(i, k);
+        seg.put(j, seg.get(j) + d);
+    }
+
+    /** Returns the index of the segment containing entry I. */
+    private int segment(long i) {
+        if (i < _geometricSize) {
+            return 63 - Long.numberOfLeadingZeros((i >>> _firstShift) + 1);
+        }
+        return _doublings + 1
+            + (int) ((i - _geometricSize) >>> _maxShift);
+    }
+
+    /** Returns the offset of entry I within segment K. */
+    private int offset(long i, int k) {
+        if (k <= _doublings) {
+            return (int) (i - (((1L << k) - 1) << _firstShift));
+        }
+        return (int) ((i - _geometricSize) & ((1L << _maxShift) - 1));
+    }
+
+    /** Default size of the first segment, in ints. */
+    static final int FIRST_SEGMENT = 1 << 10;
+    /** Largest segment size, in ints (256MB). */
+    static final int MAX_SEGMENT = 1 << 26;
+
+    /** Log2 of the first and largest segment sizes. */
+    private final int _firstShift, _maxShift;
+    /** Number of times the segment size doubles. */
+    private final int _doublings;
+    /** Total size of the doubling segments (the last of which has the
+     *  maximum size). */
+    private final long _geometricSize;
+    /** The segments. */
+    private final ArrayList<IntBuffer> _segments = new ArrayList<>();
+    /** Total size of _segments. */
+    private long _capacity;
+}
@@ -0,0 +1,263 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** The K shortest loopless paths between two vertices of an edge-weighted
+ *  graph, in order of increasing length, found by Yen's algorithm.  Each
+ *  path after the first is the best deviation from one of the paths
+ *  already found: for each vertex (the spur) along the previous path, a
+ *  single shortest-path search runs from the spur to the destination in
+ *  the graph with the earlier part of the path removed and with the edges
+ *  that previous paths with the same prefix took from the spur blocked.
+ *  All of these spur searches share one ShortestPaths object and one
+ *  blocking filter, so their arrays are allocated only once.
+ *
+ *  As for AllPairsShortestPaths, edge weights are by default those
+ *  stored in the graph, if any, and otherwise 1; clients may override
+ *  getWeight(U, V), and may override estimatedDistance to speed the
+ *  searches as for ShortestPaths.  Weights must be nonnegative.
+ *  @author Yuhan Xie
+ */
+public class KShortestPaths {
+
+    /** Up to K shortest paths in G from SOURCE to DEST. */
+    public KShortestPaths(Graph G, int source, int dest, int k) {
+        if (!G.contains(source) || !G.contains(dest)) {
+            throw new IllegalArgumentException("vertex not from Graph");
+        }
+        _G = G;
+        _weighted = G.weighted();
+        _source = source;
+        _dest = dest;
+        _k = k;
+    }
+
+    /** Find the paths.  Must be called before size, pathTo, and length,
+     *  and again after the graph or its weights change. */
+    public void setPaths() {
+        _paths.clear();
+        _lengths.clear();
+        Blocking blocking = new Blocking();
+        SpurPaths search = new SpurPaths(blocking);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        HashSet<List<Integer>> seen = new HashSet<>();
+
+        List<Integer> first = search.find(_source);
+        if (first == null || _k <= 0) {
+            return;
+        }
+        first = new ArrayList<>(first);
+        _paths.add(first);
+        _lengths.add(length(first));
+        seen.add(first);
+
+        while (_paths.size() < _k) {
+            List<Integer> last = _paths.get(_paths.size() - 1);
+            double rootLength;
+            rootLength = 0.0;
+            for (int i = 0; i < last.size() - 1; i += 1) {
+                int spur = last.get(i);
+                List<Integer> root = last.subList(0, i + 1);
+                blocking.clear();
+                for (int j = 0; j < i; j += 1) {
+                    blocking.blockVertex(last.get(j));
+                }
+                for (List<Integer> p : _paths) {
+                    if (p.size() > i + 1
+                        && p.subList(0, i + 1).equals(root)) {
+                        blocking.blockEdge(spur, p.get(i + 1));
+                    }
+                }
+                List<Integer> tail = search.find(spur);
+                if (tail != null) {
+                    ArrayList<Integer> path = new ArrayList<>(root);
+                    path.addAll(tail.subList(1, tail.size()));
+                    if (seen.add(path)) {
+                        candidates.add(new Candidate(
+                            path, rootLength + search.getWeight(_dest)));
+                    }
+                }
+                rootLength += getWeight(spur, last.get(i + 1));
+            }
+            Candidate best = candidates.poll();
+            if (best == null) {
+                break;
+            }
+            _paths.add(best._path);
+            _lengths.add(best._length);
+        }
+    }
+
+    /** Returns the number of paths found, which is less than K only if
+     *  there are fewer than K loopless paths. */
+    public int size() {
+        return _paths.size();
+    }
+
+    /** Returns the vertices along the Ith shortest path (numbering from
+     *  0), from the source to the destination. */
+    public List<Integer> pathTo(int i) {
+        return _paths.get(i);
+    }
+
+    /** Returns the length of the Ith shortest path. */
+    public double length(int i) {
+        return _lengths.get(i);
+    }
+
+    /** Returns the source vertex. */
+    public int getSource() {
+        return _source;
+    }
+
+    /** Returns the destination vertex. */
+    public int getDest() {
+        return _dest;
+    }
+
+    /** Returns the weight of edge (U, V), which must be one of my
+     *  graph's edges. */
+    protected double getWeight(int u, int v) {
+        return _weighted == null ? 1.0 : _weighted.weight(u, v);
+    }
+
+    /** Returns an estimated heuristic weight of the shortest path from
+     *  vertex V to the destination, which must not exceed the actual
+     *  weight.  Zero by default. */
+    protected double estimatedDistance(int v) {
+        return 0.0;
+    }
+
+    /** Returns the total weight of the edges along PATH. */
+    private double length(List<Integer> path) {
+        double len;
+        len = 0.0;
+        for (int i = 1; i < path.size(); i += 1) {
+            len += getWeight(path.get(i - 1), path.get(i));
+        }
+        return len;
+    }
+
+    /** A view of my graph with some vertices and edges removed. */
+    private class Blocking extends GraphFilter {
+        /** A view of _G with nothing blocked. */
+        Blocking() {
+            super(_G);
+        }
+
+        /** Unblock everything. */
+        void clear() {
+            _vertices.clear();
+            _edges.clear();
+        }
+
+        /** Block vertex V and all edges incident on it. */
+        void blockVertex(int v) {
+            _vertices.set(v);
+        }
+
+        /** Block edge (U, V). */
+        void blockEdge(int u, int v) {
+            _edges.add(((long) u << 32) | v);
+        }
+
+        @Override
+        public boolean contains(int u, int v) {
+            return super.contains(u, v) && !_vertices.get(u)
+                && !_vertices.get(v)
+                && !_edges.contains(((long) u << 32) | v);
+        }
+
+        @Override
+        public Iteration<Integer> successors(int u) {
+            ArrayList<Integer> result = _successors;
+            result.clear();
+            if (!_vertices.get(u)) {
+                for (int v : super.successors(u)) {
+                    if (!_vertices.get(v)
+                        && (_edges.isEmpty()
+                            || !_edges.contains(((long) u << 32) | v))) {
+                        result.add(v);
+                    }
+                }
+            }
+            return Iteration.iteration(result);
+        }
+
+        /** Blocked vertices. */
+        private final BitSet _vertices = new BitSet();
+        /** Blocked edges (U, V), as (U << 32) | V. */
+        private final HashSet<Long> _edges = new HashSet<>();
+        /** Buffer for successors. */
+        private final ArrayList<Integer> _successors = new ArrayList<>();
+    }
+
+    /** The shortest-path search used for every spur. */
+    private class SpurPaths extends SimpleShortestPaths {
+        /** A search over G. */
+        SpurPaths(Graph G) {
+            super(G, _source, _dest);
+        }
+
+        /** Returns a shortest path from SOURCE to the destination, or null
+         *  if there is none. */
+        List<Integer> find(int source) {
+            reset(source, _dest);
+            setPaths();
+            if (source != _dest && getPredecessor(_dest) == 0) {
+                return null;
+            }
+            return pathTo(_dest);
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return KShortestPaths.this.getWeight(u, v);
+        }
+
+        @Override
+        protected double estimatedDistance(int v) {
+            return KShortestPaths.this.estimatedDistance(v);
+        }
+    }
+
+    /** A path that might be among the K shortest. */
+    private static class Candidate implements Comparable<Candidate> {
+        /** A candidate PATH of length LENGTH. */
+        Candidate(List<Integer> path, double length) {
+            _path = path;
+            _length = length;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int c = Double.compare(_length, other._length);
+            return c != 0 ? c : Integer.compare(_path.size(),
+                                                other._path.size());
+        }
+
+        /** The vertices along the path. */
+        private final List<Integer> _path;
+        /** Its length. */
+        private final double _length;
+    }
+
+    /** The graph searched. */
+    private final Graph _G;
+    /** The graph holding my graph's stored weights, or null. */
+    private final WeightedDirectedGraph _weighted;
+    /** End points. */
+    private final int _source, _dest;
+    /** Number of paths wanted. */
+    private final int _k;
+    /** The paths found, shortest first. */
+    private final ArrayList<List<Integer>> _paths = new ArrayList<>();
+    /** Their lengths. */
+    private final ArrayList<Double> _lengths = new ArrayList<>();
+}
@@ -35,6 +35,12 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
         return e < _elabel.size() ? _elabel.get(e) : null;
     }
 
+    /** Returns the label on the edge whose edgeId is E, or null if it
+     *  has none. */
+    EL edgeLabel(int e) {
+        return e < _elabel.size() ? _elabel.get(e) : null;
+    }
+
     /** Return the successor of vertex U along the edge labeled LAB, if any,
      *  and otherwise 0. Assumes LAB is not null. If multiple edges have the
      *  label EL, returns an arbitrary one of them. */
@@ -108,6 +114,16 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
         }
     }
 
+    @Override
+    int version() {
+        return delegate().version();
+    }
+
+    @Override
+    WeightedDirectedGraph weighted() {
+        return delegate().weighted();
+    }
+
     /** If necessary, add nulls to L to make its length N.  Has no effect if
      *  L's length is already at least N. */
     static void expand(ArrayList<?> L, int n) {
@@ -0,0 +1,347 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/** A read-only Graph whose structure is memory-mapped from a file in the
+ *  format described in GraphFormat (as written by GraphIO.write).  Opening
+ *  one reads only the header; adjacency arrays are paged in from the file
+ *  as they are used.  Successor lists are sorted, so contains(u, v) and
+ *  edge ids are found by binary search.  Any labels stored in the file are
+ *  available as strings.  Attempts to modify the graph throw
+ *  UnsupportedOperationException.
+ *  @author Yuhan Xie
+ */
+public class MappedGraph extends Graph {
+
+    /** The graph in the file named FILENAME. */
+    MappedGraph(String fileName) {
+        try (FileChannel in = FileChannel.open(Paths.get(fileName), READ)) {
+            ByteBuffer head = map(in, 0, GraphFormat.HEADER_BYTES);
+            int[] header = new int[GraphFormat.HEADER_INTS];
+            for (int i = 0; i < header.length; i += 1) {
+                header[i] = head.getInt();
+            }
+            long[] offsets = new long[GraphFormat.SECTIONS];
+            for (int i = 0; i < offsets.length; i += 1) {
+                offsets[i] = head.getLong();
+            }
+            if (header[GraphFormat.H_MAGIC] != GraphFormat.MAGIC) {
+                throw badFile(fileName, "not a graph file");
+            }
+            if (header[GraphFormat.H_VERSION] != GraphFormat.VERSION) {
+                throw badFile(fileName, "unsupported version "
+                              + header[GraphFormat.H_VERSION]);
+            }
+            _flags = header[GraphFormat.H_FLAGS];
+            _maxVertex = header[GraphFormat.H_MAX_VERTEX];
+            _vertexSize = header[GraphFormat.H_VERTICES];
+            _edgeSize = header[GraphFormat.H_EDGES];
+            int arcs = header[GraphFormat.H_ARCS];
+            int maxId = header[GraphFormat.H_MAX_EDGE_ID];
+
+            _live = map(in, offsets[GraphFormat.LIVE],
+                        8L * GraphFormat.bitmapLongs(_maxVertex))
+                .asLongBuffer();
+            _outStart = ints(in, offsets[GraphFormat.OUT_START],
+                             _maxVertex + 2);
+            _outTarget = ints(in, offsets[GraphFormat.OUT_TARGET], arcs);
+            _outId = ints(in, offsets[GraphFormat.OUT_ID], arcs);
+            if (isDirected()) {
+                _inStart = ints(in, offsets[GraphFormat.IN_START],
+                                _maxVertex + 2);
+                _inSource = ints(in, offsets[GraphFormat.IN_SOURCE], arcs);
+            } else {
+                _inStart = _outStart;
+                _inSource = _outTarget;
+            }
+            if ((_flags & GraphFormat.VERTEX_LABELS) != 0) {
+                _vlabelStart = ints(in, offsets[GraphFormat.VLABEL_START],
+                                    _maxVertex + 2);
+                _vlabels = map(in, offsets[GraphFormat.VLABEL_BYTES],
+                               _vlabelStart.get(_maxVertex + 1));
+            } else {
+                _vlabelStart = null;
+                _vlabels = null;
+            }
+            if ((_flags & GraphFormat.EDGE_LABELS) != 0) {
+                _elabelStart = ints(in, offsets[GraphFormat.ELABEL_START],
+                                    maxId + 2);
+                _elabels = map(in, offsets[GraphFormat.ELABEL_BYTES],
+                               _elabelStart.get(maxId + 1));
+            } else {
+                _elabelStart = null;
+                _elabels = null;
+            }
+        } catch (IOException excp) {
+            throw badFile(fileName, excp.getMessage());
+        }
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexSize;
+    }
+
+    @Override
+    public int maxVertex() {
+        return _maxVertex;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeSize;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return (_flags & GraphFormat.DIRECTED) != 0;
+    }
+
+    @Override
+    public int outDegree(int v) {
+        return contains(v) ? _outStart.get(v + 1) - _outStart.get(v) : 0;
+    }
+
+    @Override
+    public int inDegree(int v) {
+        return contains(v) ? _inStart.get(v + 1) - _inStart.get(v) : 0;
+    }
+
+    @Override
+    public boolean contains(int u) {
+        return u > 0 && u <= _maxVertex
+            && (_live.get(u >>> 6) & (1L << u)) != 0;
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return edgeId(u, v) != 0;
+    }
+
+    @Override
+    public int add() {
+        throw readOnly();
+    }
+
+    @Override
+    public int add(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public Iteration<Integer> vertices() {
+        return new Iteration<Integer>() {
+            private int _next = advance(1);
+
+            @Override
+            public boolean hasNext() {
+                return _next <= _maxVertex;
+            }
+
+            @Override
+            public Integer next() {
+                int v = _next;
+                _next = advance(v + 1);
+                return v;
+            }
+
+            /** Returns the first vertex >= V, or _maxVertex + 1. */
+            private int advance(int v) {
+                while (v <= _maxVertex && !contains(v)) {
+                    v += 1;
+                }
+                return v;
+            }
+        };
+    }
+
+    @Override
+    public Iteration<Integer> successors(int v) {
+        return list(_outStart, _outTarget, v);
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        return list(_inStart, _inSource, v);
+    }
+
+    @Override
+    public Iteration<int[]> edges() {
+        return new Iteration<int[]>() {
+            private int _u = 0, _k = 0;
+            private final int[] _edge = new int[2];
+
+            {
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return _u <= _maxVertex;
+            }
+
+            @Override
+            public int[] next() {
+                _edge[0] = _u;
+                _edge[1] = _outTarget.get(_k);
+                _k += 1;
+                advance();
+                return _edge;
+            }
+
+            /** Move _u and _k to the next edge to deliver, if any.  Each
+             *  undirected edge is delivered once, from its smaller end. */
+            private void advance() {
+                while (_u <= _maxVertex) {
+                    if (_k < _outStart.get(_u + 1)
+                        && (isDirected() || _outTarget.get(_k) >= _u)) {
+                        return;
+                    }
+                    if (_k < _outStart.get(_u + 1)) {
+                        _k += 1;
+                    } else {
+                        _u += 1;
+                    }
+                }
+            }
+        };
+    }
+
+    /** Returns the label stored for vertex V, or null if there is none. */
+    public String getLabel(int v) {
+        if (_vlabels == null || !contains(v)) {
+            return null;
+        }
+        return text(_vlabels, _vlabelStart, v);
+    }
+
+    /** Returns the label stored for edge (U, V), or null if there is
+     *  none. */
+    public String getLabel(int u, int v) {
+        int e = edgeId(u, v);
+        if (_elabels == null || e == 0) {
+            return null;
+        }
+        return text(_elabels, _elabelStart, e);
+    }
+
+    @Override
+    protected int edgeId(int u, int v) {
+        if (!contains(u) || !contains(v)) {
+            return 0;
+        }
+        int lo = _outStart.get(u), hi = _outStart.get(u + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int w = _outTarget.get(mid);
+            if (w < v) {
+                lo = mid + 1;
+            } else if (w > v) {
+                hi = mid - 1;
+            } else {
+                return _outId.get(mid);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    int version() {
+        return 0;
+    }
+
+    /** Returns an iteration over entries START[V] through START[V + 1] - 1
+     *  of ITEMS, or an empty one if V is not my vertex. */
+    private Iteration<Integer> list(IntBuffer start, IntBuffer items,
+                                    int v) {
+        int first = contains(v) ? start.get(v) : 0,
+            end = contains(v) ? start.get(v + 1) : 0;
+        return new Iteration<Integer>() {
+            private int _k = first;
+
+            @Override
+            public boolean hasNext() {
+                return _k < end;
+            }
+
+            @Override
+            public Integer next() {
+                _k += 1;
+                return items.get(_k - 1);
+            }
+        };
+    }
+
+    /** Returns text item K from TEXT, as delimited by START, or null if it
+     *  is empty. */
+    private static String text(ByteBuffer text, IntBuffer start, int k) {
+        int first = start.get(k), end = start.get(k + 1);
+        if (first == end) {
+            return null;
+        }
+        byte[] bytes = new byte[end - first];
+        text.get(first, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the exception for an attempted modification. */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("graph is read-only");
+    }
+
+    /** Returns the exception for a problem, MSG, with file FILENAME. */
+    private static IllegalArgumentException badFile(String fileName,
+                                                    String msg) {
+        return new IllegalArgumentException(
+            String.format("could not read graph %s: %s", fileName, msg));
+    }
+
+    /** Returns the SIZE bytes at OFFSET in IN, mapped read-only. */
+    private static ByteBuffer map(FileChannel in, long offset, long size)
+        throws IOException {
+        return in.map(FileChannel.MapMode.READ_ONLY, offset, size)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Returns the N ints at OFFSET in IN, mapped read-only. */
+    private static IntBuffer ints(FileChannel in, long offset, int n)
+        throws IOException {
+        return map(in, offset, 4L * n).asIntBuffer();
+    }
+
+    /** Combination of GraphFormat flags. */
+    private final int _flags;
+    /** Sizes. */
+    private final int _maxVertex, _vertexSize, _edgeSize;
+    /** Liveness bitmap. */
+    private final LongBuffer _live;
+    /** Successor lists, with edge ids. */
+    private final IntBuffer _outStart, _outTarget, _outId;
+    /** Predecessor lists. */
+    private final IntBuffer _inStart, _inSource;
+    /** Vertex and edge label offsets, or null if absent. */
+    private final IntBuffer _vlabelStart, _elabelStart;
+    /** Vertex and edge label text, or null if absent. */
+    private final ByteBuffer _vlabels, _elabels;
+}
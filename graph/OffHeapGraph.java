@@ -0,0 +1,311 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** A growable graph whose adjacency structure is held outside the Java
+ *  heap (see IntSegments), so that very large graphs add nothing to the
+ *  work of the garbage collector.  Vertices and edges may be added but
+ *  not removed; attempts to remove them throw
+ *  UnsupportedOperationException.  Edges are numbered consecutively from
+ *  1 in the order added, and each vertex's incident edges are kept in
+ *  linked lists threaded through the edge arrays, most recent first.  An
+ *  off-heap, open-addressed hash table from endpoints to edge ids makes
+ *  finding an edge (and so adding one, which must check for duplicates)
+ *  take constant expected time, however high the degrees.
+ *  @author Yuhan Xie
+ */
+public class OffHeapGraph extends Graph {
+
+    /** A new, empty graph that is directed iff DIRECTED. */
+    public OffHeapGraph(boolean directed) {
+        _directed = directed;
+        _index.ensure(_indexMask + 1);
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexSize;
+    }
+
+    @Override
+    public int maxVertex() {
+        return _vertexSize;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeSize;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int outDegree(int v) {
+        if (!contains(v)) {
+            return 0;
+        }
+        return _directed ? _outDeg.get(v) : _outDeg.get(v) + _inDeg.get(v);
+    }
+
+    @Override
+    public int inDegree(int v) {
+        return _directed ? (contains(v) ? _inDeg.get(v) : 0) : outDegree(v);
+    }
+
+    @Override
+    public boolean contains(int u) {
+        return u > 0 && u <= _vertexSize
+            && (_live.get(u >>> 5) & (1 << u)) != 0;
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return edgeId(u, v) != 0;
+    }
+
+    @Override
+    public int add() {
+        int v = _vertexSize + 1;
+        _outHead.ensure(v + 1);
+        _inHead.ensure(v + 1);
+        _outDeg.ensure(v + 1);
+        _inDeg.ensure(v + 1);
+        _live.ensure((v >>> 5) + 1);
+        _live.set(v >>> 5, _live.get(v >>> 5) | (1 << v));
+        _vertexSize = v;
+        return v;
+    }
+
+    @Override
+    public int add(int u, int v) {
+        checkMyVertex(u);
+        checkMyVertex(v);
+        int e = edgeId(u, v);
+        if (e != 0) {
+            return e;
+        }
+        e = _edgeSize + 1;
+        _from.ensure(e + 1);
+        _to.ensure(e + 1);
+        _nextOut.ensure(e + 1);
+        _nextIn.ensure(e + 1);
+        _from.set(e, u);
+        _to.set(e, v);
+        _nextOut.set(e, _outHead.get(u));
+        _outHead.set(u, e);
+        _outDeg.add(u, 1);
+        _nextIn.set(e, _inHead.get(v));
+        _inHead.set(v, e);
+        if (_directed || u != v) {
+            _inDeg.add(v, 1);
+        }
+        _edgeSize = e;
+        if (2L * e > _indexMask) {
+            _index = new IntSegments();
+            _index.ensure(2 * (_indexMask + 1));
+            _indexMask = 2 * _indexMask + 1;
+            for (int f = 1; f <= e; f += 1) {
+                index(f);
+            }
+        } else {
+            index(e);
+        }
+        return e;
+    }
+
+    @Override
+    public void remove(int v) {
+        throw appendOnly();
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        throw appendOnly();
+    }
+
+    @Override
+    public Iteration<Integer> vertices() {
+        return new Iteration<Integer>() {
+            private int _next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return _next <= _vertexSize;
+            }
+
+            @Override
+            public Integer next() {
+                _next += 1;
+                return _next - 1;
+            }
+        };
+    }
+
+    @Override
+    public Iteration<Integer> successors(int v) {
+        if (!contains(v)) {
+            return new Incident(0, 0);
+        }
+        return new Incident(_outHead.get(v), _directed ? 0 : _inHead.get(v));
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        if (!contains(v)) {
+            return new Incident(0, 0);
+        }
+        return _directed ? new Incident(0, _inHead.get(v)) : successors(v);
+    }
+
+    @Override
+    public Iteration<int[]> edges() {
+        return new Iteration<int[]>() {
+            private int _e = 1;
+            private final int[] _edge = new int[2];
+
+            @Override
+            public boolean hasNext() {
+                return _e <= _edgeSize;
+            }
+
+            @Override
+            public int[] next() {
+                _edge[0] = _from.get(_e);
+                _edge[1] = _to.get(_e);
+                _e += 1;
+                return _edge;
+            }
+        };
+    }
+
+    @Override
+    protected int edgeId(int u, int v) {
+        if (!contains(u) || !contains(v)) {
+            return 0;
+        }
+        if (!_directed && u > v) {
+            int t = u;
+            u = v;
+            v = t;
+        }
+        for (long s = slot(u, v);; s = (s + 1) & _indexMask) {
+            int e = _index.get(s);
+            if (e == 0) {
+                return 0;
+            }
+            int a = _from.get(e), b = _to.get(e);
+            if (!_directed && a > b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            if (a == u && b == v) {
+                return e;
+            }
+        }
+    }
+
+    /** Put edge E in the first free slot of _index for its endpoints. */
+    private void index(int e) {
+        int u = _from.get(e), v = _to.get(e);
+        long s = _directed ? slot(u, v) : slot(Math.min(u, v),
+                                               Math.max(u, v));
+        while (_index.get(s) != 0) {
+            s = (s + 1) & _indexMask;
+        }
+        _index.set(s, e);
+    }
+
+    /** Returns the home slot in _index of the edge from U to V. */
+    private long slot(int u, int v) {
+        long h = ((long) u << 32 | (v & 0xffffffffL)) * 0x9e3779b97f4a7c15L;
+        return (h ^ (h >>> 29)) & _indexMask;
+    }
+
+    @Override
+    int version() {
+        return _vertexSize + _edgeSize;
+    }
+
+    /** An iteration over the vertices adjacent to some vertex along a list
+     *  of outgoing edges (delivering their targets) followed by a list of
+     *  incoming edges (delivering their sources).  Incoming self edges are
+     *  skipped if there are outgoing edges, since they will already have
+     *  been delivered. */
+    private class Incident extends Iteration<Integer> {
+        /** Iterate along the outgoing edges starting with edge OUT and then
+         *  along the incoming edges starting with edge IN. */
+        Incident(int out, int in) {
+            _skipSelf = out != 0;
+            _out = out;
+            _in = in;
+            skipSelfEdges();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _out != 0 || _in != 0;
+        }
+
+        @Override
+        public Integer next() {
+            int w;
+            if (_out != 0) {
+                w = _to.get(_out);
+                _out = _nextOut.get(_out);
+            } else {
+                w = _from.get(_in);
+                _in = _nextIn.get(_in);
+                skipSelfEdges();
+            }
+            return w;
+        }
+
+        /** Advance _in past self edges, if they are to be skipped. */
+        private void skipSelfEdges() {
+            while (_skipSelf && _in != 0 && _from.get(_in) == _to.get(_in)) {
+                _in = _nextIn.get(_in);
+            }
+        }
+
+        /** True iff incoming self edges are skipped. */
+        private final boolean _skipSelf;
+        /** Next outgoing and incoming edges, or 0. */
+        private int _out, _in;
+    }
+
+    /** Returns the exception for an attempted removal. */
+    private static UnsupportedOperationException appendOnly() {
+        return new UnsupportedOperationException("graph is append-only");
+    }
+
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** Number of vertices and edges. */
+    private int _vertexSize, _edgeSize;
+    /** Liveness bitmap: bit V % 32 of word V / 32 is set iff V is a
+     *  vertex. */
+    private final IntSegments _live = new IntSegments();
+    /** First outgoing and incoming edge of each vertex, or 0. */
+    private final IntSegments _outHead = new IntSegments(),
+        _inHead = new IntSegments();
+    /** Number of outgoing and (non-self, if undirected) incoming edges of
+     *  each vertex. */
+    private final IntSegments _outDeg = new IntSegments(),
+        _inDeg = new IntSegments();
+    /** Source and target of each edge, by edge id. */
+    private final IntSegments _from = new IntSegments(),
+        _to = new IntSegments();
+    /** Next edge with the same source, and with the same target, or 0. */
+    private final IntSegments _nextOut = new IntSegments(),
+        _nextIn = new IntSegments();
+    /** Hash table of edge ids, keyed by endpoints (in increasing order,
+     *  if undirected), with linear probing; 0 marks an empty slot.  It
+     *  is kept at most half full. */
+    private IntSegments _index = new IntSegments();
+    /** Number of slots in _index, less 1 (a power of 2, less 1). */
+    private long _indexMask = IntSegments.FIRST_SEGMENT - 1;
+}
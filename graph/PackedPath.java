@@ -0,0 +1,103 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/** A sequence of vertices along a path, packed into an int array.  Paths
+ *  are found backward from their ends, so a PackedPath is filled from
+ *  its last vertex toward its first with addFirst; the vertices occupy
+ *  the tail of the array, so neither adding nor reading one allocates.
+ *  A PackedPath may be cleared and refilled, reusing its array.  As a
+ *  List, it is read-only apart from clear, and random access is cheap.
+ *  @author Yuhan Xie
+ */
+public class PackedPath extends AbstractList<Integer>
+    implements RandomAccess {
+
+    /** An empty path. */
+    public PackedPath() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /** An empty path with room for CAPACITY vertices. */
+    public PackedPath(int capacity) {
+        _vertices = new int[Math.max(capacity, 1)];
+        _start = _vertices.length;
+    }
+
+    /** A path through the vertices in PATH, in order. */
+    public PackedPath(List<Integer> path) {
+        this(path.size());
+        for (int i = path.size() - 1; i >= 0; i -= 1) {
+            addFirst(path.get(i));
+        }
+    }
+
+    /** Add V to the start of this path. */
+    public void addFirst(int v) {
+        if (_start == 0) {
+            int n = _vertices.length;
+            int[] bigger = new int[2 * n];
+            System.arraycopy(_vertices, 0, bigger, n, n);
+            _vertices = bigger;
+            _start = n;
+        }
+        _start -= 1;
+        _vertices[_start] = v;
+        modCount += 1;
+    }
+
+    /** Returns the Ith vertex of this path, numbering from 0. */
+    public int vertex(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("no vertex " + i);
+        }
+        return _vertices[_start + i];
+    }
+
+    /** Returns the last vertex of this path. */
+    public int last() {
+        return vertex(size() - 1);
+    }
+
+    /** Returns the vertices of this path as a new array. */
+    public int[] vertices() {
+        return Arrays.copyOfRange(_vertices, _start, _vertices.length);
+    }
+
+    /** Make this path empty, with room for at least CAPACITY vertices. */
+    public void clear(int capacity) {
+        if (capacity > _vertices.length) {
+            _vertices = new int[capacity];
+        }
+        _start = _vertices.length;
+        modCount += 1;
+    }
+
+    @Override
+    public void clear() {
+        clear(0);
+    }
+
+    @Override
+    public Integer get(int i) {
+        return vertex(i);
+    }
+
+    @Override
+    public int size() {
+        return _vertices.length - _start;
+    }
+
+    /** Capacity of a path created without one. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Holds the vertices in _vertices[_start .. _vertices.length - 1]. */
+    private int[] _vertices;
+    /** Index of the first vertex. */
+    private int _start;
+}
@@ -0,0 +1,206 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Accumulates counts of the work done by Traversals and ShortestPaths.
+ *  A search records into a SearchMetrics only if one has been attached to
+ *  it (with setMetrics); otherwise it pays only for a few local counter
+ *  increments.  Each completed search adds its counts to my running totals
+ *  and is reported to my Listeners.  The totals may be published as a JMX
+ *  MBean.  A SearchMetrics may be shared by searches in several threads.
+ *  @author Yuhan Xie
+ */
+public class SearchMetrics implements SearchMetricsMBean {
+
+    /** Receives the counts for each search recorded by a SearchMetrics. */
+    public interface Listener {
+        /** Called at the end of each search with its counts, STATS. */
+        void searchFinished(Stats stats);
+    }
+
+    /** The counts for a single search. */
+    public static final class Stats {
+        /** Counts for a search of kind KIND that visited VISITED vertices,
+         *  scanned EDGES edges, had a fringe of at most FRINGEMAX entries,
+         *  made RELAXATIONS improvements, discarded STALEPOPS outdated
+         *  fringe entries, and took NANOS nanoseconds. */
+        Stats(String kind, long visited, long edges, long fringeMax,
+              long relaxations, long stalePops, long nanos) {
+            _kind = kind;
+            _visited = visited;
+            _edges = edges;
+            _fringeMax = fringeMax;
+            _relaxations = relaxations;
+            _stalePops = stalePops;
+            _nanos = nanos;
+        }
+
+        /** Returns the kind of search ("traversal" or "shortest
+         *  paths"). */
+        public String kind() {
+            return _kind;
+        }
+
+        /** Returns the number of vertices visited or settled. */
+        public long verticesVisited() {
+            return _visited;
+        }
+
+        /** Returns the number of edges examined. */
+        public long edgesScanned() {
+            return _edges;
+        }
+
+        /** Returns the largest size of the fringe. */
+        public long fringeHighWater() {
+            return _fringeMax;
+        }
+
+        /** Returns the number of relaxations that improved a distance. */
+        public long relaxations() {
+            return _relaxations;
+        }
+
+        /** Returns the number of outdated fringe entries discarded. */
+        public long stalePops() {
+            return _stalePops;
+        }
+
+        /** Returns the elapsed time in nanoseconds. */
+        public long wallTimeNanos() {
+            return _nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d visited, %d edges, fringe <= %d, "
+                                 + "%d relaxations, %d stale, %.3f ms",
+                                 _kind, _visited, _edges, _fringeMax,
+                                 _relaxations, _stalePops, _nanos / 1e6);
+        }
+
+        /** Kind of search. */
+        private final String _kind;
+        /** Counts. */
+        private final long _visited, _edges, _fringeMax, _relaxations,
+            _stalePops, _nanos;
+    }
+
+    /** Add L to the listeners notified of each search. */
+    public void addListener(Listener l) {
+        _listeners.add(l);
+    }
+
+    /** Remove L from my listeners. */
+    public void removeListener(Listener l) {
+        _listeners.remove(l);
+    }
+
+    /** Register me with the platform MBean server under the name
+     *  graph:type=SearchMetrics,name=NAME. */
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(this, objectName(name));
+        } catch (JMException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Undo register(NAME). */
+    public void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .unregisterMBean(objectName(name));
+        } catch (JMException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    @Override
+    public long getSearches() {
+        return _searches.sum();
+    }
+
+    @Override
+    public long getVerticesVisited() {
+        return _visited.sum();
+    }
+
+    @Override
+    public long getEdgesScanned() {
+        return _edges.sum();
+    }
+
+    @Override
+    public long getFringeHighWater() {
+        return _fringeMax.get();
+    }
+
+    @Override
+    public long getRelaxations() {
+        return _relaxations.sum();
+    }
+
+    @Override
+    public long getStalePops() {
+        return _stalePops.sum();
+    }
+
+    @Override
+    public long getWallTimeNanos() {
+        return _nanos.sum();
+    }
+
+    @Override
+    public void reset() {
+        _searches.reset();
+        _visited.reset();
+        _edges.reset();
+        _fringeMax.reset();
+        _relaxations.reset();
+        _stalePops.reset();
+        _nanos.reset();
+    }
+
+    /** Add the counts in STATS to my totals and report them to my
+     *  listeners. */
+    void record(Stats stats) {
+        _searches.increment();
+        _visited.add(stats.verticesVisited());
+        _edges.add(stats.edgesScanned());
+        _fringeMax.accumulate(stats.fringeHighWater());
+        _relaxations.add(stats.relaxations());
+        _stalePops.add(stats.stalePops());
+        _nanos.add(stats.wallTimeNanos());
+        for (Listener l : _listeners) {
+            l.searchFinished(stats);
+        }
+    }
+
+    /** Returns the JMX name for a SearchMetrics called NAME. */
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("graph:type=SearchMetrics,name="
+                              + ObjectName.quote(name));
+    }
+
+    /** Running totals. */
+    private final LongAdder _searches = new LongAdder(),
+        _visited = new LongAdder(), _edges = new LongAdder(),
+        _relaxations = new LongAdder(), _stalePops = new LongAdder(),
+        _nanos = new LongAdder();
+    /** Largest fringe seen. */
+    private final LongAccumulator _fringeMax =
+        new LongAccumulator(Math::max, 0);
+    /** Listeners to be told of each search. */
+    private final CopyOnWriteArrayList<Listener> _listeners =
+        new CopyOnWriteArrayList<>();
+}
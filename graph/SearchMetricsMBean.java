@@ -0,0 +1,38 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** The management interface of SearchMetrics, through which its totals can
+ *  be monitored with JMX.
+ *  @author Yuhan Xie
+ */
+public interface SearchMetricsMBean {
+
+    /** Returns the number of searches completed. */
+    long getSearches();
+
+    /** Returns the total number of vertices visited (traversals) or
+     *  settled (shortest paths). */
+    long getVerticesVisited();
+
+    /** Returns the total number of edges examined. */
+    long getEdgesScanned();
+
+    /** Returns the largest fringe size seen in any search. */
+    long getFringeHighWater();
+
+    /** Returns the total number of edge relaxations that improved a
+     *  distance. */
+    long getRelaxations();
+
+    /** Returns the total number of fringe entries removed for vertices that
+     *  had already been settled. */
+    long getStalePops();
+
+    /** Returns the total wall-clock time spent searching, in
+     *  nanoseconds. */
+    long getWallTimeNanos();
+
+    /** Set all totals to 0. */
+    void reset();
+}
@@ -4,12 +4,6 @@ package graph;
 
 import java.util.PriorityQueue;
 
-import java.util.List;
-
-import java.util.LinkedList;
-
-
-
 /** The shortest paths through an edge-weighted graph.
  *  By overrriding methods getWeight, setWeight, getPredecessor, and
  *  setPredecessor, the client can determine how to represent the weighting
@@ -99,7 +93,11 @@ public abstract class ShortestPaths {
     /** Initialize the shortest paths.  Must be called before using
      *  getWeight, getPredecessor, and pathTo. */
     public void setPaths() {
+        long start = _metrics == null ? 0 : System.nanoTime();
+        long settled, edges, fringeMax, relaxations, stale;
+        settled = edges = fringeMax = relaxations = stale = 0;
         PriorityQueue<Pair> fringe = new PriorityQueue<>();
+        WeightedDirectedGraph weighted = edgeWeights();
 
         for (int i : _G.vertices()) {
             distance[i] = Integer.MAX_VALUE;
@@ -112,31 +110,85 @@ public abstract class ShortestPaths {
         }
 
         while (!fringe.isEmpty()) {
+            fringeMax = Math.max(fringeMax, fringe.size());
             Pair shortest = fringe.remove();
             int current = shortest.index;
 
             if (found[current]) {
+                stale += 1;
                 continue;
             }
             found[current] = true;
+            settled += 1;
 
-            if (current != _dest) {
-                for (int neighbor : _G.successors(current)) {
-                    double newDis = getWeight(current)
-                            + getWeight(current, neighbor);
-                    if (newDis < distance[neighbor]) {
-                        fringe.add(new Pair(newDis
-                                + estimatedDistance(neighbor), neighbor));
-                        distance[neighbor] = newDis;
-                        prev[neighbor] = current;
+            if (current == _dest) {
+                break;
+            }
+            double base = getWeight(current);
+            if (weighted != null) {
+                int[] targets = weighted.targets(current);
+                double[] weights = weighted.weights(current);
+                int n = weighted.successorCount(current);
+                edges += n;
+                for (int k = 0; k < n; k += 1) {
+                    if (relax(fringe, current, targets[k],
+                              base + weights[k])) {
+                        relaxations += 1;
                     }
                 }
             } else {
-                return;
+                for (int neighbor : _G.successors(current)) {
+                    edges += 1;
+                    if (relax(fringe, current, neighbor,
+                              base + getWeight(current, neighbor))) {
+                        relaxations += 1;
+                    }
+                }
             }
         }
+        if (_metrics != null) {
+            _metrics.record(new SearchMetrics.Stats(
+                "shortest paths", settled, edges, fringeMax, relaxations,
+                stale, System.nanoTime() - start));
+        }
     }
 
+    /** If NEWDIS is less than the current distance to NEIGHBOR, make
+     *  CURRENT its predecessor at that distance, add it to FRINGE, and
+     *  return true.  Otherwise return false. */
+    private boolean relax(PriorityQueue<Pair> fringe, int current,
+                          int neighbor, double newDis) {
+        if (newDis < distance[neighbor]) {
+            fringe.add(new Pair(newDis + estimatedDistance(neighbor),
+                                neighbor));
+            distance[neighbor] = newDis;
+            prev[neighbor] = current;
+            return true;
+        }
+        return false;
+    }
+
+    /** Returns the graph whose stored edge weights are the same as
+     *  getWeight(U, V) for every edge (U, V), or null if there is none, in
+     *  which case setPaths calls getWeight(U, V) for each edge. */
+    WeightedDirectedGraph edgeWeights() {
+        return null;
+    }
+
+    /** Record the work done by each subsequent call of setPaths in
+     *  METRICS, or stop recording if METRICS is null. */
+    public void setMetrics(SearchMetrics metrics) {
+        _metrics = metrics;
+    }
+
+
+    /** Search from SOURCE to DEST (0 for all vertices) on the next call
+     *  of setPaths, reusing my arrays.  My graph must not have gained
+     *  vertices since I was created. */
+    void reset(int source, int dest) {
+        _source = source;
+        _dest = dest;
+    }
 
     /** Returns the starting vertex. */
     public int getSource() {
@@ -174,10 +226,24 @@ public abstract class ShortestPaths {
     protected abstract double getWeight(int u, int v);
 
     /** Returns a list of vertices starting at _source and ending
-     *  at V that represents a shortest path to V.  Invalid if there is a
-     *  destination vertex other than V. */
-    public List<Integer> pathTo(int v) {
-        LinkedList<Integer> path = new LinkedList<>();
+     *  at V that represents a shortest path to V, or null if V was not
+     *  reached.  Invalid if there is a destination vertex other than V. */
+    public PackedPath pathTo(int v) {
+        return pathTo(v, new PackedPath());
+    }
+
+    /** As for pathTo(V), but refills and returns PATH rather than
+     *  allocating a new path. */
+    public PackedPath pathTo(int v, PackedPath path) {
+        int n;
+        n = 1;
+        for (int u = v; u != _source; u = prev[u]) {
+            if (prev[u] == 0) {
+                return null;
+            }
+            n += 1;
+        }
+        path.clear(n);
         while (v != _source) {
             path.addFirst(v);
             v = prev[v];
@@ -188,7 +254,7 @@ public abstract class ShortestPaths {
 
     /** Returns a list of vertices starting at the source and ending at the
      *  destination vertex. Invalid if the destination is not specified. */
-    public List<Integer> pathTo() {
+    public PackedPath pathTo() {
         return pathTo(getDest());
     }
 
@@ -196,9 +262,11 @@ public abstract class ShortestPaths {
     /** The graph being searched. */
     protected final Graph _G;
     /** The starting vertex. */
-    private final int _source;
+    private int _source;
     /** The target vertex. */
-    private final int _dest;
+    private int _dest;
+    /** Where to record my work, or null if not recording. */
+    private SearchMetrics _metrics;
 
 
 }
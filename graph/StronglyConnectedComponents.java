@@ -0,0 +1,178 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** The strongly connected components of a graph, computed by Tarjan's
+ *  algorithm in time O(V + E).  The search uses an explicit stack rather
+ *  than recursion, so arbitrarily deep graphs are handled without
+ *  overflowing the Java stack.  Components are numbered from 1 in the
+ *  order Tarjan's algorithm completes them, which is a reverse topological
+ *  order of the condensation: if some vertex of component A has an edge
+ *  into component B != A, then A > B.
+ *  @author Yuhan Xie
+ */
+public class StronglyConnectedComponents {
+
+    /** The strongly connected components of G, as G is now. */
+    public StronglyConnectedComponents(Graph G) {
+        _adj = new Adjacency(G);
+        _component = new int[_adj.maxVertex() + 1];
+        _selfLoop = new boolean[_adj.maxVertex() + 1];
+        find();
+    }
+
+    /** Returns the number of components. */
+    public int componentCount() {
+        return _count;
+    }
+
+    /** Returns the component number (from 1) of vertex V, or 0 if V was
+     *  not a vertex. */
+    public int componentOf(int v) {
+        return _adj.contains(v) ? _component[v] : 0;
+    }
+
+    /** Returns the number of vertices in component C. */
+    public int componentSize(int c) {
+        return _first[c + 1] - _first[c];
+    }
+
+    /** Returns the vertices of component C, in increasing order. */
+    public int[] members(int c) {
+        int[] result = Arrays.copyOfRange(_members, _first[c], _first[c + 1]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** Returns true iff component C contains a cycle: that is, iff it has
+     *  more than one vertex or its single vertex has a self edge. */
+    public boolean isCyclic(int c) {
+        return componentSize(c) > 1 || _selfLoop[_members[_first[c]]];
+    }
+
+    /** Returns the members of each cyclic component, in order of
+     *  component number. */
+    public List<int[]> cycles() {
+        ArrayList<int[]> result = new ArrayList<>();
+        for (int c = 1; c <= _count; c += 1) {
+            if (isCyclic(c)) {
+                result.add(members(c));
+            }
+        }
+        return result;
+    }
+
+    /** Returns the condensation of my graph: a new acyclic DirectedGraph
+     *  whose vertex C stands for component C, and which has an edge (A, B)
+     *  iff some edge of the original graph leads from component A to a
+     *  different component B. */
+    public DirectedGraph condensation() {
+        DirectedGraph result = new DirectedGraph();
+        for (int c = 1; c <= _count; c += 1) {
+            result.add();
+        }
+        int[] targets = _adj.targets();
+        int[] lastSource = new int[_count + 1];
+        for (int a = 1; a <= _count; a += 1) {
+            for (int i = _first[a]; i < _first[a + 1]; i += 1) {
+                int v = _members[i];
+                for (int k = _adj.start(v); k < _adj.end(v); k += 1) {
+                    int b = _component[targets[k]];
+                    if (b != a && lastSource[b] != a) {
+                        lastSource[b] = a;
+                        result.add(a, b);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Run Tarjan's algorithm over _adj, filling in _component, _members,
+     *  and _first. */
+    private void find() {
+        int n = _adj.maxVertex();
+        int[] targets = _adj.targets();
+        int[] index = new int[n + 1];
+        int[] low = new int[n + 1];
+        int[] callStack = new int[n + 1];
+        int[] cursor = new int[n + 1];
+        int[] sccStack = new int[n + 1];
+        boolean[] onStack = new boolean[n + 1];
+        int[] firstScratch = new int[n + 2];
+        _members = new int[n];
+        int nextIndex, callTop, sccTop, memberCount;
+        nextIndex = 1;
+        sccTop = memberCount = 0;
+
+        for (int root = 1; root <= n; root += 1) {
+            if (!_adj.contains(root) || index[root] != 0) {
+                continue;
+            }
+            callTop = 0;
+            callStack[0] = root;
+            cursor[root] = _adj.start(root);
+            index[root] = low[root] = nextIndex++;
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+
+            while (callTop >= 0) {
+                int v = callStack[callTop];
+                if (cursor[v] < _adj.end(v)) {
+                    int w = targets[cursor[v]];
+                    cursor[v] += 1;
+                    if (w == v) {
+                        _selfLoop[v] = true;
+                    } else if (index[w] == 0) {
+                        callStack[++callTop] = w;
+                        cursor[w] = _adj.start(w);
+                        index[w] = low[w] = nextIndex++;
+                        sccStack[sccTop++] = w;
+                        onStack[w] = true;
+                    } else if (onStack[w] && index[w] < low[v]) {
+                        low[v] = index[w];
+                    }
+                    continue;
+                }
+                callTop -= 1;
+                if (callTop >= 0) {
+                    int u = callStack[callTop];
+                    if (low[v] < low[u]) {
+                        low[u] = low[v];
+                    }
+                }
+                if (low[v] == index[v]) {
+                    _count += 1;
+                    firstScratch[_count] = memberCount;
+                    int w;
+                    do {
+                        w = sccStack[--sccTop];
+                        onStack[w] = false;
+                        _component[w] = _count;
+                        _members[memberCount++] = w;
+                    } while (w != v);
+                }
+            }
+        }
+        firstScratch[_count + 1] = memberCount;
+        _first = Arrays.copyOf(firstScratch, _count + 2);
+    }
+
+    /** Snapshot of the graph's successor lists. */
+    private final Adjacency _adj;
+    /** Component number of each vertex. */
+    private final int[] _component;
+    /** _selfLoop[v] is true iff v has a self edge. */
+    private final boolean[] _selfLoop;
+    /** Vertices grouped by component. */
+    private int[] _members;
+    /** The members of component c are _members[_first[c]] through
+     *  _members[_first[c + 1] - 1]. */
+    private int[] _first;
+    /** Number of components. */
+    private int _count;
+}
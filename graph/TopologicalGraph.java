@@ -0,0 +1,211 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+
+/** A directed acyclic graph that keeps a topological ordering of its
+ *  vertices up to date as it is modified, using the algorithm of Pearce
+ *  and Kelly.  Adding an edge (U, V) that is already consistent with the
+ *  current order costs O(1) beyond the underlying DirectedGraph; otherwise
+ *  only the vertices whose positions lie between those of V and U, and
+ *  that are reachable from V or reach U, are searched and renumbered.
+ *  Removing edges or vertices never invalidates the order.  Edges that
+ *  would create a cycle are rejected.
+ *  @author Yuhan Xie
+ */
+public class TopologicalGraph extends GraphFilter {
+
+    /** An empty graph. */
+    public TopologicalGraph() {
+        super(new DirectedGraph());
+    }
+
+    /** Returns my vertices in topological order: for every edge (U, V),
+     *  U appears before V. */
+    public int[] order() {
+        int[] result = new int[vertexSize()];
+        int k;
+        k = 0;
+        for (int p = 0; p < _end; p += 1) {
+            if (_vertexAt[p] != 0) {
+                result[k] = _vertexAt[p];
+                k += 1;
+            }
+        }
+        return result;
+    }
+
+    /** Returns true iff U and V are my vertices and U precedes V in
+     *  the current order. */
+    public boolean precedes(int u, int v) {
+        return contains(u) && contains(v) && _pos[u] < _pos[v];
+    }
+
+    @Override
+    public int add() {
+        int v = super.add();
+        if (_end == _vertexAt.length) {
+            if (2 * _holes >= _end) {
+                compact();
+            } else {
+                _vertexAt = Arrays.copyOf(_vertexAt, 2 * _end);
+            }
+        }
+        if (v >= _pos.length) {
+            _pos = Arrays.copyOf(_pos, Math.max(2 * _pos.length, v + 1));
+        }
+        _pos[v] = _end;
+        _vertexAt[_end] = v;
+        _end += 1;
+        return v;
+    }
+
+    /** Add the edge (U, V), reordering vertices if necessary.  Throws
+     *  IllegalArgumentException if the edge would create a cycle. */
+    @Override
+    public int add(int u, int v) {
+        if (contains(u) && contains(v) && !contains(u, v)) {
+            if (u == v) {
+                throw new IllegalArgumentException("edge would create a cycle");
+            }
+            if (_pos[v] < _pos[u]) {
+                reorder(u, v);
+            }
+        }
+        return super.add(u, v);
+    }
+
+    @Override
+    public void remove(int v) {
+        if (contains(v)) {
+            _vertexAt[_pos[v]] = 0;
+            _holes += 1;
+        }
+        super.remove(v);
+    }
+
+    /** Restore the order invariant after adding (U, V), where V currently
+     *  precedes U.  Throws IllegalArgumentException if V reaches U. */
+    private void reorder(int u, int v) {
+        int lower = _pos[v], upper = _pos[u];
+        _stamp += 1;
+        if (_mark.length < _pos.length) {
+            _mark = new int[_pos.length];
+        }
+        int forwardCount = search(v, true, lower, upper, 0);
+        int n = search(u, false, lower, upper, forwardCount);
+        int backwardCount = n - forwardCount;
+
+        int[] found = _positions;
+        Arrays.sort(found, 0, forwardCount);
+        Arrays.sort(found, forwardCount, n);
+        if (_vertices.length < n) {
+            _vertices = new int[_positions.length];
+        }
+        int[] vertices = _vertices;
+        for (int i = 0; i < backwardCount; i += 1) {
+            vertices[i] = _vertexAt[found[forwardCount + i]];
+        }
+        for (int i = 0; i < forwardCount; i += 1) {
+            vertices[backwardCount + i] = _vertexAt[found[i]];
+        }
+        Arrays.sort(found, 0, n);
+        for (int i = 0; i < n; i += 1) {
+            _pos[vertices[i]] = found[i];
+            _vertexAt[found[i]] = vertices[i];
+        }
+    }
+
+    /** Depth-first search from START, forward along successors if FORWARD
+     *  and backward along predecessors otherwise, confined to vertices
+     *  positioned strictly between LOWER and UPPER (plus START).  Records
+     *  the positions of the vertices found in _positions starting at
+     *  index FIRST, and returns the index after the last one.  Throws
+     *  IllegalArgumentException if a forward search reaches position
+     *  UPPER. */
+    private int search(int start, boolean forward, int lower, int upper,
+                       int first) {
+        int n, top;
+        top = 0;
+        _mark[start] = _stamp;
+        n = record(first, _pos[start]);
+        _stack = push(_stack, top, start);
+        top += 1;
+        while (top > 0) {
+            top -= 1;
+            int x = _stack[top];
+            for (int w : forward ? successors(x) : predecessors(x)) {
+                int p = _pos[w];
+                if (forward && p == upper) {
+                    throw new IllegalArgumentException(
+                        "edge would create a cycle");
+                }
+                if (_mark[w] != _stamp
+                    && (forward ? p < upper : p > lower)) {
+                    _mark[w] = _stamp;
+                    n = record(n, p);
+                    _stack = push(_stack, top, w);
+                    top += 1;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Store position P at _positions[N], growing as needed, and return
+     *  N + 1. */
+    private int record(int n, int p) {
+        _positions = push(_positions, n, p);
+        return n + 1;
+    }
+
+    /** Store X at A[K], returning A or, if A is too short, a longer copy
+     *  of A. */
+    private static int[] push(int[] a, int k, int x) {
+        if (k == a.length) {
+            a = Arrays.copyOf(a, 2 * k);
+        }
+        a[k] = x;
+        return a;
+    }
+
+    /** Close up the holes in _vertexAt left by removed vertices. */
+    private void compact() {
+        int k;
+        k = 0;
+        for (int p = 0; p < _end; p += 1) {
+            int v = _vertexAt[p];
+            if (v != 0) {
+                _pos[v] = k;
+                _vertexAt[k] = v;
+                k += 1;
+            }
+        }
+        Arrays.fill(_vertexAt, k, _end, 0);
+        _end = k;
+        _holes = 0;
+    }
+
+    /** Position in the order of each vertex. */
+    private int[] _pos = new int[INITIAL_SIZE];
+    /** Vertex at each position, or 0 for a removed vertex. */
+    private int[] _vertexAt = new int[INITIAL_SIZE];
+    /** Number of positions in use in _vertexAt. */
+    private int _end;
+    /** Number of positions in _vertexAt occupied by removed vertices. */
+    private int _holes;
+    /** _mark[v] == _stamp iff v was reached by the current reordering. */
+    private int[] _mark = new int[INITIAL_SIZE];
+    /** Identifies the current reordering. */
+    private int _stamp;
+    /** Search stack. */
+    private int[] _stack = new int[INITIAL_SIZE];
+    /** Positions of the vertices found by the current reordering. */
+    private int[] _positions = new int[INITIAL_SIZE];
+    /** Scratch space for vertices being renumbered. */
+    private int[] _vertices = new int[INITIAL_SIZE];
+
+    /** Initial size of my arrays. */
+    private static final int INITIAL_SIZE = 16;
+}
@@ -6,6 +6,8 @@ import java.util.Queue;
 
 import java.util.Arrays;
 
+import java.util.BitSet;
+
 import java.util.Collections;
 
 import java.util.Collection;
@@ -39,8 +41,8 @@ public abstract class Traversal {
     protected Traversal(Graph G, Queue<Integer> fringe) {
         _G = G;
         _fringe = fringe;
-        _visited = new ArrayList<>();
-        _postvisited = new ArrayList<>();
+        _visited = new BitSet();
+        _postvisited = new BitSet();
         _tobereversed = new ArrayList<>();
 
     }
@@ -49,22 +51,29 @@ public abstract class Traversal {
      * Unmark all vertices in the graph.
      */
     public void clear() {
-        _visited = new ArrayList<>();
+        _visited.clear();
+        _postvisited.clear();
     }
 
     /**
      * Initialize the fringe to V0 and perform a traversal.
      */
     public void traverse(Collection<Integer> V0) {
+        long start = startClock();
+        long visited, edges, fringeMax;
+        visited = edges = fringeMax = 0;
         _fringe.addAll(V0);
         while (!_fringe.isEmpty()) {
+            fringeMax = Math.max(fringeMax, _fringe.size());
             int v = _fringe.remove();
             _tobereversed = new ArrayList<>();
             if (!marked(v)) {
+                visited += 1;
                 visit(v);
                 mark(v);
                 _fringe.add(v);
                 for (int i : _G.successors(v)) {
+                    edges += 1;
                     if (!marked(i)) {
                         _tobereversed.add(i);
                     }
@@ -75,14 +84,15 @@ public abstract class Traversal {
                 _fringe.addAll(_tobereversed);
 
             } else {
-                if (shouldPostVisit(v) && !_postvisited.contains(v)) {
-                    if (_visited.contains(v)) {
+                if (shouldPostVisit(v) && !_postvisited.get(v)) {
+                    if (_visited.get(v)) {
                         postVisit(v);
-                        _postvisited.add(v);
+                        _postvisited.set(v);
                     }
                 }
             }
         }
+        recordTraversal(start, visited, edges, fringeMax);
     }
 
 
@@ -93,20 +103,26 @@ public abstract class Traversal {
         traverse(Arrays.<Integer>asList(v0));
     }
 
+    /**
+     * Record the work done by each subsequent traversal in METRICS, or
+     * stop recording if METRICS is null.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        _metrics = metrics;
+    }
+
     /**
      * Returns true iff V has been marked.
      */
     protected boolean marked(int v) {
-        return _visited.contains(v);
+        return _visited.get(v);
     }
 
     /**
      * Mark vertex V.
      */
     protected void mark(int v) {
-        if (!marked(v)) {
-            _visited.add(v);
-        }
+        _visited.set(v);
     }
 
     /**
@@ -162,6 +178,35 @@ public abstract class Traversal {
         return !marked(v);
     }
 
+    /**
+     * Returns the graph being traversed.
+     */
+    Graph graph() {
+        return _G;
+    }
+
+    /**
+     * Returns the starting time to pass to recordTraversal for a traversal
+     * beginning now.
+     */
+    long startClock() {
+        return _metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Record a traversal that began at time START (from startClock),
+     * visited VISITED vertices, scanned EDGES edges, and had at most
+     * FRINGEMAX vertices pending at once, if I am recording metrics.
+     */
+    void recordTraversal(long start, long visited, long edges,
+                         long fringeMax) {
+        if (_metrics != null) {
+            _metrics.record(new SearchMetrics.Stats(
+                "traversal", visited, edges, fringeMax, 0, 0,
+                System.nanoTime() - start));
+        }
+    }
+
     /**
      * The graph being traversed.
      */
@@ -171,15 +216,19 @@ public abstract class Traversal {
      */
     protected final Queue<Integer> _fringe;
     /**
-     * Visited Integer.
+     * Marked vertices.
      */
-    private ArrayList<Integer> _visited;
+    private BitSet _visited;
     /**
-     * postVisited Integer.
+     * Postvisited vertices.
      */
-    private ArrayList<Integer> _postvisited;
+    private BitSet _postvisited;
     /**
      * tobereversed list.
      */
     private ArrayList<Integer> _tobereversed;
+    /**
+     * Where to record my work, or null if not recording.
+     */
+    private SearchMetrics _metrics;
 }
@@ -26,12 +26,69 @@ public class UndirectedGraph extends GraphObj {
         return super.contains(u, v) || super.contains(v, u);
     }
 
+    @Override
+    public int add() {
+        int v = super.add();
+        if (!_stale) {
+            _components.makeSet(v);
+        }
+        return v;
+    }
+
+    @Override
+    public int add(int u, int v) {
+        int e = super.add(u, v);
+        if (!_stale) {
+            _components.union(u, v);
+        }
+        return e;
+    }
+
+    @Override
+    public void remove(int v) {
+        _stale |= contains(v);
+        super.remove(v);
+    }
+
     @Override
     public void remove(int u, int v) {
+        _stale |= contains(u, v);
         super.remove(u, v);
         super.remove(v, u);
     }
 
+    /** Returns true iff U and V are my vertices and there is a path
+     *  between them. */
+    public boolean connected(int u, int v) {
+        if (!contains(u) || !contains(v)) {
+            return false;
+        }
+        refreshComponents();
+        return _components.find(u) == _components.find(v);
+    }
+
+    /** Returns the number of vertices in the connected component containing
+     *  V, or 0 if V is not one of my vertices. */
+    public int componentSize(int v) {
+        if (!contains(v)) {
+            return 0;
+        }
+        refreshComponents();
+        return _components.size(v);
+    }
+
+    /** Rebuild _components from scratch if removals have made it
+     *  stale. */
+    private void refreshComponents() {
+        if (_stale) {
+            _components.reset(maxVertex() + 1);
+            for (int[] e : edges()) {
+                _components.union(e[0], e[1]);
+            }
+            _stale = false;
+        }
+    }
+
     @Override
     public int outDegree(int v) {
         LinkedList<Integer> inList = getinList().get(v),
@@ -54,17 +111,14 @@ public class UndirectedGraph extends GraphObj {
         }
         Iterator<Integer> second = super.successors(v);
         Iteration<Integer> iterator = new Iteration<>() {
-            private int position = 0;
+            private Iterator<Integer> first = getoutList().get(v).iterator();
             @Override
             public boolean hasNext() {
-                return getoutList().get(v).size()
-                        > position || second.hasNext();
+                return first.hasNext() || second.hasNext();
             }
             public Integer next() {
-                if (getoutList().get(v).size() > position) {
-                    int result = getoutList().get(v).get(position);
-                    position++;
-                    return result;
+                if (first.hasNext()) {
+                    return first.next();
                 } else {
                     return second.next();
                 }
@@ -77,4 +131,11 @@ public class UndirectedGraph extends GraphObj {
         return predecessors(v);
     }
 
+    /** The connected components, maintained incrementally as vertices and
+     *  edges are added.  Because union-find cannot undo a union, removals
+     *  just mark it stale, and it is rebuilt on the next query. */
+    private final DisjointSets _components = new DisjointSets(1);
+    /** True iff _components must be rebuilt before use. */
+    private boolean _stale;
+
 }
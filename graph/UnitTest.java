@@ -5,9 +5,15 @@ import ucb.junit.textui;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.List;
 
 /* You MAY add public @Test methods to this class.  You may also add
  * additional public classes containing "Testing" in their name. These
@@ -23,7 +29,8 @@ public class UnitTest {
 
     /** Run all JUnit tests in the graph package. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(graph.GraphTest.class));
+        System.exit(textui.runClasses(graph.GraphTest.class,
+                                       graph.UnitTest.class));
     }
 
     private class DFSPostOrder extends DepthFirstTraversal {
@@ -35,12 +42,19 @@ public class UnitTest {
             order = new ArrayList<>();
         }
 
+        @Override
+        protected boolean visit(int v) {
+            preorder.add(v);
+            return true;
+        }
+
         @Override
         protected boolean postVisit(int v) {
             order.add(v);
             return true;
         }
 
+        ArrayList<Integer> preorder = new ArrayList<>();
     }
 
     @Test
@@ -106,11 +120,816 @@ public class UnitTest {
 
         ArrayList<Integer> expectedPath =
                 new ArrayList<>(Arrays.asList(1, 3, 4));
-        LinkedList<Integer> actualPath = (LinkedList<Integer>) dij.pathTo(4);
+        List<Integer> actualPath = dij.pathTo(4);
         for (int i = 0; i < actualPath.size(); i++) {
             assertEquals(expectedPath.get(i), actualPath.get(i));
         }
         assertEquals(expectedPath.size(), actualPath.size());
     }
 
+    @Test
+    public void sccTest() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 7; i += 1) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(2, 3);
+        g.add(3, 1);
+        g.add(3, 4);
+        g.add(4, 5);
+        g.add(5, 4);
+        g.add(6, 6);
+        g.add(5, 7);
+
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(g);
+        assertEquals(4, scc.componentCount());
+        assertEquals(scc.componentOf(1), scc.componentOf(3));
+        assertEquals(scc.componentOf(4), scc.componentOf(5));
+        assertTrue(scc.componentOf(1) > scc.componentOf(4));
+        assertTrue(scc.componentOf(4) > scc.componentOf(7));
+        assertFalse(scc.isCyclic(scc.componentOf(7)));
+        assertTrue(scc.isCyclic(scc.componentOf(6)));
+
+        List<int[]> cycles = scc.cycles();
+        assertEquals(3, cycles.size());
+        assertArrayEquals(new int[] {1, 2, 3},
+                          scc.members(scc.componentOf(2)));
+
+        DirectedGraph dag = scc.condensation();
+        assertEquals(4, dag.vertexSize());
+        assertEquals(2, dag.edgeSize());
+        assertTrue(dag.contains(scc.componentOf(1), scc.componentOf(4)));
+        assertTrue(dag.contains(scc.componentOf(4), scc.componentOf(7)));
+    }
+
+    @Test
+    public void sccDeepChain() {
+        DirectedGraph g = new DirectedGraph();
+        final int n = 20000;
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+        }
+        for (int i = 1; i < n; i += 1) {
+            g.add(i, i + 1);
+        }
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(g);
+        assertEquals(n, scc.componentCount());
+        assertTrue(scc.cycles().isEmpty());
+    }
+
+    /** Assert that ORDER lists the vertices of G topologically. */
+    private static void assertTopological(Graph g, int[] order) {
+        assertEquals(g.vertexSize(), order.length);
+        int[] pos = new int[g.maxVertex() + 1];
+        for (int i = 0; i < order.length; i += 1) {
+            pos[order[i]] = i + 1;
+        }
+        for (int[] e : g.edges()) {
+            assertTrue(pos[e[0]] < pos[e[1]]);
+        }
+    }
+
+    @Test
+    public void incrementalTopologicalOrder() {
+        TopologicalGraph g = new TopologicalGraph();
+        for (int i = 0; i < 6; i += 1) {
+            g.add();
+        }
+        g.add(5, 4);
+        g.add(4, 3);
+        g.add(3, 2);
+        g.add(6, 1);
+        assertTopological(g, g.order());
+        g.add(2, 1);
+        g.add(2, 6);
+        assertTopological(g, g.order());
+        assertTrue(g.precedes(5, 6));
+        try {
+            g.add(6, 3);
+            fail("cycle accepted");
+        } catch (IllegalArgumentException excp) {
+            assertFalse(g.contains(6, 3));
+        }
+        assertTopological(g, g.order());
+        g.remove(1);
+        g.remove(5, 4);
+        g.add(4, 5);
+        assertTopological(g, g.order());
+        int v = g.add();
+        g.add(v, 3);
+        assertTopological(g, g.order());
+    }
+
+    @Test
+    public void undirectedComponents() {
+        UndirectedGraph g = new UndirectedGraph();
+        for (int i = 0; i < 6; i += 1) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(3, 2);
+        g.add(4, 5);
+        assertTrue(g.connected(1, 3));
+        assertFalse(g.connected(1, 4));
+        assertEquals(3, g.componentSize(2));
+        assertEquals(1, g.componentSize(6));
+        assertEquals(0, g.componentSize(7));
+
+        g.remove(3, 2);
+        assertFalse(g.connected(1, 3));
+        assertEquals(2, g.componentSize(1));
+        g.add(5, 3);
+        assertTrue(g.connected(4, 3));
+
+        g.remove(5);
+        assertFalse(g.connected(4, 3));
+        assertEquals(5, g.add());
+        assertEquals(1, g.componentSize(5));
+        g.add(5, 1);
+        assertTrue(g.connected(2, 5));
+    }
+
+    @Test
+    public void searchMetrics() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 4; i += 1) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(1, 3);
+        g.add(2, 3);
+        g.add(3, 4);
+        SearchMetrics metrics = new SearchMetrics();
+        ArrayList<SearchMetrics.Stats> runs = new ArrayList<>();
+        metrics.addListener(runs::add);
+
+        BreadthFirstTraversal bfs = new BreadthFirstTraversal(g);
+        bfs.setMetrics(metrics);
+        bfs.traverse(1);
+        assertEquals(1, runs.size());
+        assertEquals(4, runs.get(0).verticesVisited());
+        assertEquals(4, runs.get(0).edgesScanned());
+
+        ShortestPathDummy dij = new ShortestPathDummy(g, 1);
+        dij.setMetrics(metrics);
+        dij.setPaths();
+        assertEquals(2, runs.size());
+        assertEquals(4, runs.get(1).verticesVisited());
+        assertEquals(3, runs.get(1).relaxations());
+        assertEquals(2, metrics.getSearches());
+        assertEquals(8, metrics.getVerticesVisited());
+        assertTrue(metrics.getFringeHighWater() >= 4);
+
+        metrics.register("unitTest");
+        metrics.unregister("unitTest");
+        metrics.reset();
+        assertEquals(0, metrics.getSearches());
+    }
+
+    @Test
+    public void dfsPrePostOrder() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 6; i += 1) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(1, 3);
+        g.add(3, 2);
+        g.add(3, 4);
+        g.add(4, 1);
+        g.add(5, 6);
+        DFSPostOrder traversal = new DFSPostOrder(g);
+        traversal.traverse(Arrays.asList(1, 5));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), traversal.preorder);
+        assertEquals(Arrays.asList(2, 4, 3, 1, 6, 5), traversal.order);
+
+        traversal.traverse(3);
+        assertEquals(6, traversal.order.size());
+        traversal.clear();
+        traversal.order.clear();
+        g.add(2, 5);
+        traversal.traverse(3);
+        assertEquals(Arrays.asList(6, 5, 2, 1, 4, 3), traversal.order);
+    }
+
+    @Test
+    public void dfsDeepChain() {
+        DirectedGraph g = new DirectedGraph();
+        final int n = 20000;
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+        }
+        for (int i = 1; i < n; i += 1) {
+            g.add(i, i + 1);
+        }
+        DFSPostOrder traversal = new DFSPostOrder(g);
+        traversal.traverse(1);
+        assertEquals(n, traversal.order.size());
+        assertEquals(n, (int) traversal.order.get(0));
+    }
+
+    /** Returns the name of a new temporary file. */
+    static String tempFile() throws IOException {
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        return file.getPath();
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        LabeledGraph<String, Double> g =
+            new LabeledGraph<>(new DirectedGraph());
+        for (int i = 1; i <= 5; i += 1) {
+            g.add("v" + i);
+        }
+        g.add(1, 3, 1.5);
+        g.add(1, 2, 2.5);
+        g.add(3, 3, null);
+        g.add(2, 4, 3.0);
+        g.add(4, 1, 4.0);
+        g.remove(2, 4);
+        g.remove(5);
+        String name = tempFile();
+        GraphIO.write(g, name);
+
+        int[] ids = g.edgeIds();
+        int k;
+        k = 0;
+        for (int[] e : g.edges()) {
+            assertEquals(g.edgeId(e[0], e[1]), ids[k]);
+            k += 1;
+        }
+        assertEquals(ids.length, k);
+
+        MappedGraph m = GraphIO.read(name);
+        assertTrue(m.isDirected());
+        assertEquals(4, m.vertexSize());
+        assertEquals(4, m.maxVertex());
+        assertEquals(4, m.edgeSize());
+        assertFalse(m.contains(5));
+        assertTrue(m.contains(1, 2));
+        assertFalse(m.contains(2, 1));
+        assertEquals(g.edgeId(4, 1), m.edgeId(4, 1));
+        assertEquals("4.0", m.getLabel(4, 1));
+        assertEquals(2, m.outDegree(1));
+        assertEquals(2, m.inDegree(3));
+        assertEquals("v2", m.getLabel(2));
+        assertEquals("2.5", m.getLabel(1, 2));
+        assertNull(m.getLabel(3, 3));
+        ArrayList<Integer> succ = new ArrayList<>();
+        for (int v : m.successors(1)) {
+            succ.add(v);
+        }
+        assertEquals(Arrays.asList(2, 3), succ);
+        int edges;
+        edges = 0;
+        for (int[] e : m.edges()) {
+            assertTrue(g.contains(e[0], e[1]));
+            edges += 1;
+        }
+        assertEquals(4, edges);
+        try {
+            m.add();
+            fail("modified read-only graph");
+        } catch (UnsupportedOperationException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void binaryLabelSections() throws IOException {
+        LabeledGraph<String, String> g =
+            new LabeledGraph<>(new DirectedGraph());
+        for (int i = 1; i <= 4; i += 1) {
+            g.add("v" + i);
+        }
+        g.add(1, 2, "a");
+        g.add(2, 3, "b");
+        String name = tempFile();
+        GraphIO.write(g, name);
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(Paths.get(name)))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        int maxVertex = file.getInt(4 * GraphFormat.H_MAX_VERTEX),
+            maxId = file.getInt(4 * GraphFormat.H_MAX_EDGE_ID);
+        assertEquals(labelStartBytes(maxVertex + 2),
+                     sectionOffset(file, GraphFormat.VLABEL_BYTES)
+                     - sectionOffset(file, GraphFormat.VLABEL_START));
+        assertEquals(labelStartBytes(maxId + 2),
+                     sectionOffset(file, GraphFormat.ELABEL_BYTES)
+                     - sectionOffset(file, GraphFormat.ELABEL_START));
+    }
+
+    /** Returns the offset of section SECTION in the graph file FILE. */
+    private static long sectionOffset(ByteBuffer file, int section) {
+        return file.getLong(4 * GraphFormat.HEADER_INTS + 8 * section);
+    }
+
+    /** Returns the space taken by a section of N ints, padded to a
+     *  multiple of 8 bytes. */
+    private static long labelStartBytes(int n) {
+        return (4L * n + 7) / 8 * 8;
+    }
+
+    @Test
+    public void binaryUndirected() throws IOException {
+        UndirectedGraph g = new UndirectedGraph();
+        for (int i = 0; i < 4; i += 1) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(3, 2);
+        g.add(4, 4);
+        String name = tempFile();
+        GraphIO.write(g, name);
+        MappedGraph m = GraphIO.read(name);
+        assertFalse(m.isDirected());
+        assertEquals(3, m.edgeSize());
+        assertTrue(m.contains(2, 3));
+        assertTrue(m.contains(3, 2));
+        assertEquals(2, m.degree(2));
+        int edges;
+        edges = 0;
+        for (int[] e : m.edges()) {
+            edges += 1;
+        }
+        assertEquals(3, edges);
+        DFSPostOrder dfs = new DFSPostOrder(m);
+        dfs.traverse(1);
+        assertEquals(Arrays.asList(3, 2, 1), dfs.order);
+    }
+
+    /** Write LINES to a new temporary file and return its name. */
+    static String tempFile(String... lines) throws IOException {
+        String name = tempFile();
+        Files.write(Paths.get(name), Arrays.asList(lines));
+        return name;
+    }
+
+    @Test
+    public void edgeListImport() throws IOException {
+        String text = tempFile("# a small graph", "1 2", "3 1", "",
+                               "2 3  # trailing comment", "1 2", "5 5",
+                               "2 1", "3 1");
+        String dir = new File(tempFile()).getParent();
+        String name = tempFile();
+        new EdgeListImporter(2, dir).convert(text, name, true);
+        MappedGraph m = GraphIO.read(name);
+        assertTrue(m.isDirected());
+        assertEquals(5, m.vertexSize());
+        assertEquals(5, m.edgeSize());
+        assertTrue(m.contains(4));
+        assertTrue(m.contains(1, 2) && m.contains(2, 1));
+        assertFalse(m.contains(1, 3));
+        assertEquals(2, m.inDegree(1));
+        assertEquals(1, m.edgeId(1, 2));
+        assertEquals(5, m.edgeId(5, 5));
+        ArrayList<Integer> pred = new ArrayList<>();
+        for (int v : m.predecessors(1)) {
+            pred.add(v);
+        }
+        assertEquals(Arrays.asList(2, 3), pred);
+
+        new EdgeListImporter(2, dir).convert(text, name, false);
+        m = GraphIO.read(name);
+        assertFalse(m.isDirected());
+        assertEquals(4, m.edgeSize());
+        assertTrue(m.contains(3, 2) && m.contains(2, 3));
+        assertEquals(m.edgeId(1, 3), m.edgeId(3, 1));
+        assertEquals(2, m.degree(1));
+        assertEquals(0, m.degree(4));
+        DFSPostOrder dfs = new DFSPostOrder(m);
+        dfs.traverse(1);
+        assertEquals(Arrays.asList(3, 2, 1), dfs.order);
+
+        try {
+            new EdgeListImporter().convert(tempFile("1 2", "3"), name, true);
+            fail("accepted incomplete edge");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void externalSortManyRuns() throws IOException {
+        File dir = Files.createTempDirectory("sort").toFile();
+        dir.deleteOnExit();
+        int n = 2 * (3 * ExternalSorter.FAN_IN + 5);
+        try (ExternalSorter sorter = new ExternalSorter(dir.toPath(), 2)) {
+            for (int i = 0; i < n; i += 1) {
+                sorter.add((i * 37L) % n / 2, i % 2);
+            }
+            sorter.finish();
+            assertTrue(sorter.runs() > 2 * ExternalSorter.FAN_IN);
+            for (int i = 0; i < n; i += 1) {
+                assertTrue(sorter.next());
+                assertEquals(i / 2, sorter.key());
+                assertEquals(i % 2, sorter.value());
+            }
+            assertFalse(sorter.next());
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void intSegments() {
+        IntSegments a = new IntSegments(4, 16);
+        a.ensure(100);
+        assertTrue(a.capacity() >= 100);
+        for (int i = 0; i < 100; i += 1) {
+            assertEquals(0, a.get(i));
+            a.set(i, 3 * i);
+        }
+        a.add(99, 1);
+        for (int i = 0; i < 99; i += 1) {
+            assertEquals(3 * i, a.get(i));
+        }
+        assertEquals(298, a.get(99));
+    }
+
+    @Test
+    public void packedPath() {
+        PackedPath p = new PackedPath(2);
+        for (int v = 40; v >= 1; v -= 1) {
+            p.addFirst(v);
+        }
+        assertEquals(40, p.size());
+        for (int i = 0; i < 40; i += 1) {
+            assertEquals(i + 1, p.vertex(i));
+            assertEquals(Integer.valueOf(i + 1), p.get(i));
+        }
+        assertEquals(40, p.last());
+        assertEquals(40, p.vertices().length);
+        p.clear();
+        assertTrue(p.isEmpty());
+        p.addFirst(2);
+        p.addFirst(1);
+        assertEquals(Arrays.asList(1, 2), p);
+        assertEquals(p, new PackedPath(Arrays.asList(1, 2)));
+
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 5; i += 1) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(2, 3);
+        g.add(3, 5);
+        g.add(1, 4);
+        ShortestPathDummy dij = new ShortestPathDummy(g, 1);
+        dij.setPaths();
+        PackedPath reused = dij.pathTo(5, p);
+        assertSame(p, reused);
+        assertEquals(Arrays.asList(1, 2, 3, 5), reused);
+        assertEquals(Arrays.asList(1, 4), dij.pathTo(4, p));
+    }
+
+    @Test
+    public void offHeapGraph() {
+        int n = 3000;
+        OffHeapGraph g = new OffHeapGraph(true);
+        DirectedGraph h = new DirectedGraph();
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+            h.add();
+        }
+        for (int i = 1; i <= n; i += 1) {
+            for (int d : new int[] { 1, 7, 100 }) {
+                int j = (i + d - 1) % n + 1;
+                g.add(i, j);
+                h.add(i, j);
+            }
+        }
+        assertEquals(1, g.add(1, 2));
+        assertEquals(3 * n, g.edgeSize());
+        assertEquals(3, g.outDegree(50));
+        assertEquals(3, g.inDegree(50));
+        assertTrue(g.contains(50, 150));
+        assertFalse(g.contains(150, 50));
+        BreadthFirstTraversal bfs =
+            new BreadthFirstTraversal(g) {
+                @Override
+                protected boolean visit(int v) {
+                    count += 1;
+                    return true;
+                }
+            };
+        bfs.traverse(1);
+        assertEquals(n, count);
+        ShortestPaths p = new SimpleShortestPaths(g, 1, 250) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return 1.0;
+            }
+        };
+        ShortestPaths q = new SimpleShortestPaths(h, 1, 250) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return 1.0;
+            }
+        };
+        p.setPaths();
+        q.setPaths();
+        assertEquals(q.getWeight(250), p.getWeight(250), 0.0);
+        assertEquals(q.pathTo().size(), p.pathTo().size());
+        try {
+            g.remove(1, 2);
+            fail("removed from append-only graph");
+        } catch (UnsupportedOperationException excp) {
+            /* Expected. */
+        }
+
+        OffHeapGraph u = new OffHeapGraph(false);
+        for (int i = 0; i < 3; i += 1) {
+            u.add();
+        }
+        u.add(1, 2);
+        u.add(3, 1);
+        u.add(1, 1);
+        assertEquals(u.edgeId(1, 3), u.add(1, 3));
+        assertEquals(3, u.degree(1));
+        ArrayList<Integer> nbrs = new ArrayList<>();
+        for (int v : u.neighbors(1)) {
+            nbrs.add(v);
+        }
+        nbrs.sort(null);
+        assertEquals(Arrays.asList(1, 2, 3), nbrs);
+    }
+
+    @Test
+    public void offHeapGraphHub() {
+        int n = 100000;
+        for (boolean directed : new boolean[] { true, false }) {
+            OffHeapGraph g = new OffHeapGraph(directed);
+            for (int i = 0; i < n; i += 1) {
+                g.add();
+            }
+            for (int v = 1; v <= n; v += 1) {
+                assertEquals(v, g.add(1, v));
+            }
+            for (int v = 2; v <= n; v += 1) {
+                assertEquals(directed ? n + v - 1 : v, g.add(v, 1));
+            }
+            assertEquals(directed ? 2 * n - 1 : n, g.edgeSize());
+            for (int v = 1; v <= n; v += 1) {
+                assertEquals(v, g.edgeId(1, v));
+                assertTrue(g.contains(v, 1));
+            }
+            assertFalse(g.contains(2, 3));
+        }
+    }
+
+    /** Vertices counted by offHeapGraph. */
+    private int count;
+
+    @Test
+    public void weightedShortestPaths() {
+        WeightedDirectedGraph g = new WeightedDirectedGraph();
+        LabeledGraph<String, Double> h =
+            new LabeledGraph<>(new DirectedGraph());
+        java.util.Random rand = new java.util.Random(61);
+        int n = 60;
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+            h.add("v" + i);
+        }
+        for (int i = 0; i < 5 * n; i += 1) {
+            int u = 1 + rand.nextInt(n), v = 1 + rand.nextInt(n);
+            double w = rand.nextInt(100);
+            if (!h.contains(u, v)) {
+                h.add(u, v, w);
+                g.add(u, v, w);
+            }
+        }
+        for (int[] e : h.edges()) {
+            if (rand.nextInt(4) == 0) {
+                int u = e[0], v = e[1];
+                h.remove(u, v);
+                g.remove(u, v);
+                break;
+            }
+        }
+        g.remove(7);
+        h.remove(7);
+        assertEquals(h.edgeSize(), g.edgeSize());
+        assertEquals(Double.POSITIVE_INFINITY, g.weight(7, 8), 0.0);
+        LabeledGraph<String, Double> lg = new LabeledGraph<>(g);
+        assertSame(g, lg.weighted());
+        assertEquals(g.version(), lg.version());
+        GraphFilter filter = new GraphFilter(g);
+        assertNull(filter.weighted());
+        assertEquals(-1, filter.version());
+
+        for (int source = 1; source <= n; source += 10) {
+            ShortestPaths fast = new WeightedShortestPaths(lg, source);
+            ShortestPaths slow = new SimpleShortestPaths(h, source) {
+                @Override
+                protected double getWeight(int u, int v) {
+                    return h.getLabel(u, v);
+                }
+            };
+            fast.setPaths();
+            slow.setPaths();
+            for (int v : h.vertices()) {
+                assertEquals(slow.getWeight(v), fast.getWeight(v), 0.0);
+            }
+        }
+        g.setWeight(1, g.targets(1)[0], 0.5);
+        assertEquals(0.5, g.weight(1, g.targets(1)[0]), 0.0);
+        try {
+            new WeightedShortestPaths(h, 1);
+            fail("searched graph without weights");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void allPairsShortestPaths() {
+        WeightedDirectedGraph g = new WeightedDirectedGraph();
+        java.util.Random rand = new java.util.Random(61);
+        int n = 150;
+        double[] p = new double[n + 1];
+        for (int i = 1; i <= n; i += 1) {
+            g.add();
+            p[i] = rand.nextInt(20);
+        }
+        for (int i = 0; i < 4 * n; i += 1) {
+            int u = 1 + rand.nextInt(n), v = 1 + rand.nextInt(n);
+            g.add(u, v, rand.nextInt(50) + p[u] - p[v]);
+        }
+        g.remove(10);
+
+        AllPairsShortestPaths fw = new AllPairsShortestPaths(g);
+        fw.setThreads(3);
+        fw.setPaths(AllPairsShortestPaths.Method.FLOYD_WARSHALL);
+        AllPairsShortestPaths johnson = new AllPairsShortestPaths(g);
+        johnson.setPaths(AllPairsShortestPaths.Method.JOHNSON);
+        for (int u : g.vertices()) {
+            for (int v : g.vertices()) {
+                double d = fw.distance(u, v);
+                assertEquals(d, johnson.distance(u, v), 1e-9);
+                List<Integer> path = fw.pathTo(u, v);
+                List<Integer> path2 = johnson.pathTo(u, v);
+                if (d == Double.POSITIVE_INFINITY) {
+                    assertNull(path);
+                    assertNull(path2);
+                    assertEquals(0, fw.next(u, v));
+                    continue;
+                }
+                for (List<Integer> q : Arrays.asList(path, path2)) {
+                    assertEquals(u, (int) q.get(0));
+                    assertEquals(v, (int) q.get(q.size() - 1));
+                    double len;
+                    len = 0;
+                    for (int k = 1; k < q.size(); k += 1) {
+                        len += g.weight(q.get(k - 1), q.get(k));
+                    }
+                    assertEquals(d, len, 1e-9);
+                }
+            }
+        }
+
+        g.add(2, 1, -1000.0);
+        g.add(1, 2, 0.0);
+        for (AllPairsShortestPaths.Method m
+                 : AllPairsShortestPaths.Method.values()) {
+            try {
+                new AllPairsShortestPaths(g).setPaths(m);
+                fail("missed negative cycle");
+            } catch (IllegalArgumentException excp) {
+                /* Expected. */
+            }
+        }
+    }
+
+    @Test
+    public void allPairsTooLarge() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i <= AllPairsShortestPaths.MAX_VERTICES; i += 1) {
+            g.add();
+        }
+        try {
+            new AllPairsShortestPaths(g).setPaths();
+            fail("accepted graph too large for its matrices");
+        } catch (IllegalArgumentException excp) {
+            assertTrue(excp.getMessage().startsWith("graph too large"));
+        }
+    }
+
+    @Test
+    public void kShortestPaths() {
+        WeightedDirectedGraph g = new WeightedDirectedGraph();
+        for (int i = 0; i < 6; i += 1) {
+            g.add();
+        }
+        g.add(1, 2, 3.0);
+        g.add(1, 3, 2.0);
+        g.add(2, 4, 4.0);
+        g.add(3, 2, 1.0);
+        g.add(3, 4, 2.0);
+        g.add(3, 5, 3.0);
+        g.add(4, 5, 2.0);
+        g.add(4, 6, 1.0);
+        g.add(5, 6, 2.5);
+        KShortestPaths paths = new KShortestPaths(g, 1, 6, 4);
+        paths.setPaths();
+        assertEquals(4, paths.size());
+        assertEquals(Arrays.asList(1, 3, 4, 6), paths.pathTo(0));
+        assertEquals(5.0, paths.length(0), 0.0);
+        assertEquals(Arrays.asList(1, 3, 5, 6), paths.pathTo(1));
+        assertEquals(7.5, paths.length(1), 0.0);
+        assertEquals(8.0, paths.length(2), 0.0);
+        assertEquals(8.0, paths.length(3), 0.0);
+        assertEquals(new java.util.HashSet<>(Arrays.asList(
+                         Arrays.asList(1, 2, 4, 6),
+                         Arrays.asList(1, 3, 2, 4, 6))),
+                     new java.util.HashSet<>(Arrays.asList(
+                         paths.pathTo(2), paths.pathTo(3))));
+
+        paths = new KShortestPaths(g, 1, 6, 100);
+        paths.setPaths();
+        assertEquals(7, paths.size());
+        for (int i = 1; i < paths.size(); i += 1) {
+            assertTrue(paths.length(i - 1) <= paths.length(i));
+        }
+        paths = new KShortestPaths(g, 6, 1, 3);
+        paths.setPaths();
+        assertEquals(0, paths.size());
+    }
+
+    @Test
+    public void dynamicShortestPaths() {
+        WeightedDirectedGraph g = new WeightedDirectedGraph();
+        java.util.Random rand = new java.util.Random(61);
+        int n = 80;
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+        }
+        for (int i = 0; i < 4 * n; i += 1) {
+            g.add(1 + rand.nextInt(n), 1 + rand.nextInt(n),
+                  1 + rand.nextInt(20));
+        }
+        DynamicShortestPaths paths = new DynamicShortestPaths(g, 1);
+        paths.setPaths();
+        for (int step = 0; step < 300; step += 1) {
+            int u = 1 + rand.nextInt(n), v = 1 + rand.nextInt(n);
+            double old = g.weight(u, v);
+            switch (rand.nextInt(3)) {
+            case 0:
+                g.add(u, v, 1 + rand.nextInt(20));
+                break;
+            case 1:
+                g.remove(u, v);
+                old = -1;
+                break;
+            default:
+                if (old != Double.POSITIVE_INFINITY) {
+                    g.setWeight(u, v, old + 1 + rand.nextInt(10));
+                }
+                break;
+            }
+            double now = g.weight(u, v);
+            if (now < old) {
+                paths.edgeDecreased(u, v);
+            } else if (now > old || old < 0) {
+                paths.edgeIncreased(u, v);
+            }
+            DynamicShortestPaths fresh = new DynamicShortestPaths(g, 1);
+            fresh.setPaths();
+            for (int w = 1; w <= n; w += 1) {
+                assertEquals(fresh.getWeight(w), paths.getWeight(w), 1e-9);
+                List<Integer> path = paths.pathTo(w);
+                if (path != null) {
+                    double len;
+                    len = 0;
+                    for (int k = 1; k < path.size(); k += 1) {
+                        len += g.weight(path.get(k - 1), path.get(k));
+                    }
+                    assertEquals(paths.getWeight(w), len, 1e-9);
+                }
+            }
+        }
+
+        WeightedDirectedGraph chain = new WeightedDirectedGraph();
+        for (int i = 0; i < 100; i += 1) {
+            chain.add();
+        }
+        for (int i = 1; i < 100; i += 1) {
+            chain.add(i, i + 1, 1.0);
+        }
+        paths = new DynamicShortestPaths(chain, 1);
+        paths.setPaths();
+        chain.setWeight(97, 98, 5.0);
+        paths.edgeIncreased(97, 98);
+        assertEquals(3, paths.repaired());
+        assertEquals(103.0, paths.getWeight(100), 0.0);
+        chain.remove(97, 98);
+        paths.edgeIncreased(97, 98);
+        assertNull(paths.pathTo(99));
+        chain.add(50, 99, 1.0);
+        paths.edgeDecreased(50, 99);
+        assertEquals(2, paths.repaired());
+        assertEquals(51.0, paths.getWeight(100), 0.0);
+    }
+
 }
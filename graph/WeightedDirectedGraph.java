@@ -0,0 +1,141 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+
+/** A directed graph each of whose edges carries a numeric weight.  Each
+ *  vertex keeps its successors in an array, alongside a parallel array of
+ *  the weights of the corresponding edges, so that a search can read the
+ *  weights of a vertex's outgoing edges as it iterates over them (see
+ *  WeightedShortestPaths) instead of looking up each edge.  Edges added
+ *  without a weight have weight 1.
+ *  @author Yuhan Xie
+ */
+public class WeightedDirectedGraph extends DirectedGraph {
+
+    /** Add an edge from U to V with weight W, or set the weight of the
+     *  existing one, returning its id as for add(U, V). */
+    public int add(int u, int v, double w) {
+        int e = add(u, v);
+        _weights[u][indexOf(u, v)] = w;
+        return e;
+    }
+
+    /** Set the weight of edge (U, V), which must be one of my edges,
+     *  to W. */
+    public void setWeight(int u, int v, double w) {
+        int k = indexOf(u, v);
+        if (k < 0) {
+            throw new IllegalArgumentException("no such edge");
+        }
+        _weights[u][k] = w;
+    }
+
+    /** Returns the weight of edge (U, V), or positive infinity if there is
+     *  no such edge. */
+    public double weight(int u, int v) {
+        int k = indexOf(u, v);
+        return k < 0 ? Double.POSITIVE_INFINITY : _weights[u][k];
+    }
+
+    @Override
+    public int add() {
+        int v = super.add();
+        if (v >= _targets.length) {
+            int n = Math.max(2 * _targets.length, v + 1);
+            _targets = Arrays.copyOf(_targets, n);
+            _weights = Arrays.copyOf(_weights, n);
+            _count = Arrays.copyOf(_count, n);
+        }
+        if (_targets[v] == null) {
+            _targets[v] = new int[INITIAL_DEGREE];
+            _weights[v] = new double[INITIAL_DEGREE];
+        }
+        _count[v] = 0;
+        return v;
+    }
+
+    @Override
+    public int add(int u, int v) {
+        if (contains(u, v)) {
+            return edgeId(u, v);
+        }
+        int e = super.add(u, v);
+        int n = _count[u];
+        if (n == _targets[u].length) {
+            _targets[u] = Arrays.copyOf(_targets[u], 2 * n);
+            _weights[u] = Arrays.copyOf(_weights[u], 2 * n);
+        }
+        _targets[u][n] = v;
+        _weights[u][n] = 1.0;
+        _count[u] = n + 1;
+        return e;
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        int k = indexOf(u, v);
+        if (k < 0) {
+            return;
+        }
+        super.remove(u, v);
+        int last = _count[u] - 1;
+        _targets[u][k] = _targets[u][last];
+        _weights[u][k] = _weights[u][last];
+        _count[u] = last;
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return indexOf(u, v) >= 0;
+    }
+
+    @Override
+    WeightedDirectedGraph weighted() {
+        return this;
+    }
+
+    /** Returns the number of successors of V recorded in targets(V) and
+     *  weights(V), or 0 if V is not my vertex. */
+    int successorCount(int v) {
+        return contains(v) ? _count[v] : 0;
+    }
+
+    /** Returns the successors of V, which must be my vertex, in the first
+     *  successorCount(V) entries of an array that may be longer. */
+    int[] targets(int v) {
+        return _targets[v];
+    }
+
+    /** Returns the weights of the edges to targets(V), in the same
+     *  order. */
+    double[] weights(int v) {
+        return _weights[v];
+    }
+
+    /** Returns the index of V in targets(U), or -1 if (U, V) is not one of
+     *  my edges. */
+    private int indexOf(int u, int v) {
+        if (!contains(u) || !contains(v)) {
+            return -1;
+        }
+        int[] targets = _targets[u];
+        for (int k = _count[u] - 1; k >= 0; k -= 1) {
+            if (targets[k] == v) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /** Initial capacity of each successor array. */
+    private static final int INITIAL_DEGREE = 4;
+
+    /** Successors of each vertex. */
+    private int[][] _targets = new int[1][];
+    /** Weights of the edges to each vertex's successors. */
+    private double[][] _weights = new double[1][];
+    /** Number of successors of each vertex. */
+    private int[] _count = new int[1];
+}
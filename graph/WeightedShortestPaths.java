@@ -0,0 +1,41 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** Shortest paths through a graph whose edge weights are stored in the
+ *  graph itself: a WeightedDirectedGraph, or a GraphFilter (such as a
+ *  LabeledGraph) over one.  Since the weights of each vertex's outgoing
+ *  edges are stored alongside its successors, setPaths reads them as it
+ *  iterates instead of calling getWeight(U, V) for each edge.  Clients
+ *  may still override estimatedDistance for A* search.
+ *  @author Yuhan Xie
+ */
+public class WeightedShortestPaths extends SimpleShortestPaths {
+
+    /** The shortest paths in G from SOURCE. */
+    public WeightedShortestPaths(Graph G, int source) {
+        this(G, source, 0);
+    }
+
+    /** A shortest path in G from SOURCE to DEST. */
+    public WeightedShortestPaths(Graph G, int source, int dest) {
+        super(G, source, dest);
+        _weighted = G.weighted();
+        if (_weighted == null) {
+            throw new IllegalArgumentException("graph has no edge weights");
+        }
+    }
+
+    @Override
+    protected double getWeight(int u, int v) {
+        return _weighted.weight(u, v);
+    }
+
+    @Override
+    WeightedDirectedGraph edgeWeights() {
+        return _weighted;
+    }
+
+    /** The graph holding the edge weights. */
+    private final WeightedDirectedGraph _weighted;
+}